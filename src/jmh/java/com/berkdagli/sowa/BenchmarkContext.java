@@ -0,0 +1,83 @@
+package com.berkdagli.sowa;
+
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.service.NoteService;
+import com.berkdagli.sowa.service.UserService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.servlet.AnnotationConfigServletWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockServletContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The full application context on a mock servlet context (no server, no ports) and a throwaway SQLite file,
+ * with the same configuration as production otherwise: performance mode, caches, Flyway schema.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+
+    private final Path directory;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(Path directory, ConfigurableApplicationContext context) {
+        this.directory = directory;
+        this.context = context;
+    }
+
+    public static BenchmarkContext start() {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("sowa-jmh");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SpringApplication application = new SpringApplication(SowaApplication.class);
+        application.setWebApplicationType(WebApplicationType.SERVLET);
+        application.setApplicationContextFactory(type -> {
+            AnnotationConfigServletWebApplicationContext context = new AnnotationConfigServletWebApplicationContext();
+            context.setServletContext(new MockServletContext());
+            return context;
+        });
+        // command-line arguments, so they win over application.properties and .env
+        return new BenchmarkContext(directory, application.run(
+                "--spring.datasource.url=jdbc:sqlite:" + directory.resolve("benchmark.db"),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+    }
+
+    // A user owning {@code count} notes of roughly a paragraph each
+    public void seedUserWithNotes(String email, int count) {
+        getBean(UserService.class).createUser(email.substring(0, email.indexOf('@')), email, "Benchmark-1");
+        NoteService notes = getBean(NoteService.class);
+        for (int i = 0; i < count; i++) {
+            NoteDto note = new NoteDto();
+            note.setTitle("Note " + i);
+            note.setContent(("Paragraph " + i + " of the benchmark notes, long enough to need a snippet. ").repeat(8));
+            notes.createNote(note, email);
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.berkdagli.sowa.controller;
+
+import com.berkdagli.sowa.BenchmarkContext;
+import com.berkdagli.sowa.dto.NotePage;
+import com.berkdagli.sowa.service.NoteService;
+import jakarta.servlet.ServletContext;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders {@code notes/list} for a full page of notes through the application's Thymeleaf view resolver,
+ * as the DispatcherServlet would after {@code NoteController.listNotes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 6, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotesListRenderBenchmark {
+
+    private static final String EMAIL = "render@example.com";
+
+    private BenchmarkContext context;
+    private View view;
+    private Map<String, Object> model;
+    private ServletContext servletContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        context.seedUserWithNotes(EMAIL, NoteService.PAGE_SIZE * 2);
+        NotePage page = context.getBean(NoteService.class).findPageByUserEmail(EMAIL, null, null);
+        model = Map.of("notes", page.getNotes(), "page", page);
+        view = context.getBean(ThymeleafViewResolver.class).resolveViewName("notes/list", Locale.ENGLISH);
+        servletContext = ((WebApplicationContext) context.context()).getServletContext();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int render() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/notes");
+        request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, context.context());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        view.render(model, request, response);
+        return response.getContentAsByteArray().length;
+    }
+}
@@ -0,0 +1,52 @@
+package com.berkdagli.sowa.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decision path of the original {@code RateLimitFilter}, kept verbatim as a benchmark baseline.
+ */
+class LegacyRateLimiter {
+
+    private final Map<String, UserBucket> buckets = new ConcurrentHashMap<>();
+
+    private static final long CAPACITY = 100;
+    private static final long REFILL_DURATION_SECONDS = 60;
+
+    boolean tryAcquire(String ip) {
+        return buckets.computeIfAbsent(ip, k -> new UserBucket()).tryConsume();
+    }
+
+    private static class UserBucket {
+        private long tokens;
+        private Instant lastRefill;
+
+        UserBucket() {
+            this.tokens = CAPACITY;
+            this.lastRefill = Instant.now();
+        }
+
+        synchronized boolean tryConsume() {
+            refill();
+            if (tokens > 0) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+
+        private void refill() {
+            Instant now = Instant.now();
+            long secondsElapsed = Duration.between(lastRefill, now).getSeconds();
+            if (secondsElapsed > 0) {
+                long tokensToAdd = (secondsElapsed * CAPACITY) / REFILL_DURATION_SECONDS;
+                if (tokensToAdd > 0) {
+                    tokens = Math.min(CAPACITY, tokens + tokensToAdd);
+                    lastRefill = now;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.security.ratelimit.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One request through {@code RateLimitFilter}: path exclusion check, policy resolution, key resolution
+ * and the limiter decision, with the production policy set (login, register, notes, default).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 256;
+    private static final long LIMIT = 1_000_000;
+    private static final FilterChain NO_OP = (request, response) -> { };
+
+    @Param({ "/notes", "/login", "/css/style.css" })
+    public String path;
+
+    private RateLimitFilter filter;
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        final MockHttpServletRequest[] requests = new MockHttpServletRequest[CLIENTS];
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        @Setup
+        public void setUp(RateLimitFilterBenchmark benchmark) {
+            for (int i = 0; i < CLIENTS; i++) {
+                MockHttpServletRequest request = new MockHttpServletRequest(
+                        "/login".equals(benchmark.path) ? "POST" : "GET", benchmark.path);
+                request.setRemoteAddr("10.0." + (i >> 8) + "." + (i & 0xff));
+                requests[i] = request;
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        // generous limits: measure the decision path, not rejections
+        properties.setCapacity(LIMIT);
+        properties.setRefillPeriod(Duration.ofSeconds(1));
+        properties.setExcludedPaths(List.of("/css/**", "/js/**", "/favicon.ico", "/.well-known/**"));
+        properties.setPolicies(List.of(
+                policy("login", List.of("/login", "/api/login"), RateLimitProperties.Algorithm.SLIDING_WINDOW_COUNTER),
+                policy("register", List.of("/api/register"), RateLimitProperties.Algorithm.SLIDING_WINDOW_COUNTER),
+                policy("notes", List.of("/notes", "/notes/**"), RateLimitProperties.Algorithm.TOKEN_BUCKET)));
+        filter = new RateLimitFilter(properties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int doFilter_1thread(Exchange exchange) throws Exception {
+        return filter(exchange);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int doFilter_4threads(Exchange exchange) throws Exception {
+        return filter(exchange);
+    }
+
+    private int filter(Exchange exchange) throws Exception {
+        MockHttpServletRequest request = exchange.requests[ThreadLocalRandom.current().nextInt(CLIENTS)];
+        filter.doFilter(request, exchange.response, NO_OP);
+        return exchange.response.getStatus();
+    }
+
+    private static RateLimitProperties.Policy policy(String name, List<String> patterns,
+            RateLimitProperties.Algorithm algorithm) {
+        RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+        policy.setName(name);
+        policy.setPatterns(patterns);
+        policy.setAlgorithm(algorithm);
+        policy.setLimit(LIMIT);
+        policy.setPeriod(Duration.ofSeconds(1));
+        return policy;
+    }
+}
@@ -0,0 +1,81 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.security.ratelimit.RateLimitProperties;
+import com.berkdagli.sowa.security.ratelimit.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lock-free limiter with the original synchronized bucket map.
+ * A small pool of client addresses is shared by all threads so that hot keys contend.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 64;
+
+    private final String[] clients = new String[CLIENTS];
+    private LegacyRateLimiter legacy;
+    private TokenBucketRateLimiter lockFree;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10.0.0." + i;
+        }
+        legacy = new LegacyRateLimiter();
+        lockFree = new TokenBucketRateLimiter(new RateLimitProperties());
+    }
+
+    @TearDown
+    public void tearDown() {
+        lockFree.close();
+    }
+
+    private String nextClient() {
+        return clients[ThreadLocalRandom.current().nextInt(CLIENTS)];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean legacy_1thread() {
+        return legacy.tryAcquire(nextClient());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean legacy_8threads() {
+        return legacy.tryAcquire(nextClient());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean legacy_64threads() {
+        return legacy.tryAcquire(nextClient());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean lockFree_1thread() {
+        return lockFree.tryAcquire(nextClient());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean lockFree_8threads() {
+        return lockFree.tryAcquire(nextClient());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean lockFree_64threads() {
+        return lockFree.tryAcquire(nextClient());
+    }
+}
@@ -0,0 +1,97 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.security.event.SecurityEventProperties;
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.inspection.SuspiciousRequestProperties;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code SuspiciousRequestFilter} on a note form post, in both modes: with the downstream code reading every
+ * parameter, as Spring MVC data binding does, and with a handler that reads none of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuspiciousRequestFilterBenchmark {
+
+    // reads every parameter, as data binding does
+    private static final FilterChain READ_PARAMETERS = (request, response) -> {
+        for (String name : request.getParameterMap().keySet()) {
+            request.getParameter(name);
+        }
+    };
+
+    private static final FilterChain READ_NOTHING = (request, response) -> { };
+
+    @Param({ "1024", "65536" })
+    public int contentLength;
+
+    private SecurityEventPublisher securityEvents;
+    private SuspiciousRequestFilter streaming;
+    private SuspiciousRequestFilter eager;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        securityEvents = new SecurityEventPublisher(new SecurityEventProperties());
+        streaming = filter(SuspiciousRequestProperties.Mode.STREAMING);
+        eager = filter(SuspiciousRequestProperties.Mode.EAGER);
+
+        StringBuilder text = new StringBuilder(contentLength);
+        while (text.length() < contentLength) {
+            text.append("Meeting notes: select the union of both drafts, then drop the old table layout. ");
+        }
+        String content = text.substring(0, contentLength);
+
+        request = new MockHttpServletRequest("POST", "/notes");
+        request.addParameter("title", "Weekly sync");
+        request.addParameter("content", content);
+        request.addParameter("_csrf", "3f1c0c5e-8d4b-4f6e-9a43-2d1f8c7b6a50");
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        securityEvents.destroy();
+    }
+
+    @Benchmark
+    public int doFilter_streaming() throws Exception {
+        streaming.doFilter(request, response, READ_PARAMETERS);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int doFilter_eager() throws Exception {
+        eager.doFilter(request, response, READ_PARAMETERS);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int doFilter_streaming_unread() throws Exception {
+        streaming.doFilter(request, response, READ_NOTHING);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int doFilter_eager_unread() throws Exception {
+        eager.doFilter(request, response, READ_NOTHING);
+        return response.getStatus();
+    }
+
+    private SuspiciousRequestFilter filter(SuspiciousRequestProperties.Mode mode) {
+        SuspiciousRequestProperties properties = new SuspiciousRequestProperties();
+        properties.setMode(mode);
+        return new SuspiciousRequestFilter(properties, new DefaultResourceLoader(), securityEvents);
+    }
+}
@@ -0,0 +1,67 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.security.inspection.SignatureScanner;
+import com.berkdagli.sowa.security.inspection.SuspiciousRequestProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans a clean note body (the common, worst case: every character is inspected)
+ * with the original lower-case-and-contains check and with the compiled scanner.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuspiciousScanBenchmark {
+
+    @Param({ "10240", "1048576" })
+    public int payloadSize;
+
+    @Param({ "4", "256" })
+    public int signatureCount;
+
+    private String payload;
+    private List<String> signatures;
+    private SignatureScanner scanner;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String words = "Lorem ipsum dolor sit amet, Select Union Drop Table Execute Script consectetur ";
+        StringBuilder text = new StringBuilder(payloadSize);
+        while (text.length() < payloadSize) {
+            int start = random.nextInt(words.length() - 8);
+            text.append(words, start, start + 8);
+        }
+        payload = text.substring(0, payloadSize);
+
+        signatures = new ArrayList<>(new SuspiciousRequestProperties().getSignatures());
+        for (int i = signatures.size(); i < signatureCount; i++) {
+            signatures.add("sig" + i + "(" + (char) ('a' + i % 26));
+        }
+        scanner = SignatureScanner.compile(signatures);
+    }
+
+    @Benchmark
+    public boolean legacyLowerCaseContains() {
+        String lowerValue = payload.toLowerCase();
+        for (String signature : signatures) {
+            if (lowerValue.contains(signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public int compiledScanner() {
+        return scanner.find(payload);
+    }
+}
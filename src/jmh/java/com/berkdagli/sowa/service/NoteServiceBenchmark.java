@@ -0,0 +1,67 @@
+package com.berkdagli.sowa.service;
+
+import com.berkdagli.sowa.BenchmarkContext;
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.dto.NotePage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The notes list and update paths through the real service, repositories, user cache and SQLite
+ * performance-mode data sources, against a temporary database file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 6, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteServiceBenchmark {
+
+    private static final String EMAIL = "bench@example.com";
+    private static final int NOTES = 2_000;
+
+    private BenchmarkContext context;
+    private NoteService noteService;
+    private long middleCursor;
+    private long updatedNoteId;
+    private final NoteDto[] updates = new NoteDto[2];
+    private int updateCount;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seedUserWithNotes(EMAIL, NOTES);
+        noteService = context.getBean(NoteService.class);
+
+        NotePage first = noteService.findPageByUserEmail(EMAIL, null, null);
+        updatedNoteId = first.getNotes().get(0).getId();
+        middleCursor = updatedNoteId - NOTES / 2;
+        for (int i = 0; i < updates.length; i++) {
+            updates[i] = new NoteDto();
+            updates[i].setTitle("Updated " + i);
+            updates[i].setContent("Updated content " + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public NotePage listFirstPage() {
+        return noteService.findPageByUserEmail(EMAIL, null, null);
+    }
+
+    @Benchmark
+    public NotePage listOlderPage() {
+        return noteService.findPageByUserEmail(EMAIL, middleCursor, null);
+    }
+
+    @Benchmark
+    public void updateNote() {
+        noteService.updateNote(updatedNoteId, updates[updateCount++ & 1], EMAIL);
+    }
+}
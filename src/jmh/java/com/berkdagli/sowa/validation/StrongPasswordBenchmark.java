@@ -0,0 +1,69 @@
+package com.berkdagli.sowa.validation;
+
+import jakarta.validation.ConstraintValidatorContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass validator with the original four-regex version on a typical valid password,
+ * a weak one and a 10 000 character input of the kind used for CPU amplification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrongPasswordBenchmark {
+
+    @Param({ "valid", "weak", "long" })
+    public String input;
+
+    private String password;
+    private ConstraintValidatorContext context;
+    private LegacyStrongPasswordValidator legacy;
+    private StrongPasswordValidator singlePass;
+
+    @Setup
+    public void setUp() {
+        password = switch (input) {
+            case "valid" -> "Kx7#vQ2mLp";
+            case "weak" -> "password";
+            default -> "a".repeat(10_000);
+        };
+        context = noOpContext();
+        legacy = new LegacyStrongPasswordValidator();
+        singlePass = new StrongPasswordValidator();
+        singlePass.initialize(Holder.class.getDeclaredFields()[0].getAnnotation(StrongPassword.class));
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return legacy.isValid(password, context);
+    }
+
+    @Benchmark
+    public boolean singlePass() {
+        return singlePass.isValid(password, context);
+    }
+
+    private static final class Holder {
+        @StrongPassword
+        String password;
+    }
+
+    // Swallows violations; both validators pay the same for it
+    private static ConstraintValidatorContext noOpContext() {
+        Object[] self = new Object[2];
+        self[1] = Proxy.newProxyInstance(StrongPasswordBenchmark.class.getClassLoader(),
+                new Class<?>[] { ConstraintValidatorContext.ConstraintViolationBuilder.class },
+                (proxy, method, args) -> self[0]);
+        self[0] = Proxy.newProxyInstance(StrongPasswordBenchmark.class.getClassLoader(),
+                new Class<?>[] { ConstraintValidatorContext.class },
+                (proxy, method, args) -> method.getName().equals("buildConstraintViolationWithTemplate")
+                        ? self[1] : null);
+        return (ConstraintValidatorContext) self[0];
+    }
+}
@@ -0,0 +1,148 @@
+package com.berkdagli.sowa.loadtest;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills a SQLite database with {@code --users} users and {@code --notes} notes for load tests.
+ * <p>
+ * The schema is created with the application's own Flyway migrations, so the file can be used directly
+ * as {@code DB_FILE_NAME} of a local instance. Users are {@code loadtest-<n>@example.com}, all with the
+ * same {@code --password}; notes are spread evenly over them. Contents come from a seeded
+ * {@link Random}: the same options always produce the same data. Rows are written with JDBC batches in
+ * one transaction, and users left over from an earlier run are removed first together with their notes.
+ * <pre>
+ * ./gradlew loadtestSeed -Ploadtest.args="--db=data/loadtest.db --users=200 --notes=100000"
+ * </pre>
+ */
+public class DataSeeder {
+
+    static final String EMAIL_FORMAT = "loadtest-%d@example.com";
+    static final String DEFAULT_PASSWORD = "LoadTest-2024!";
+
+    private static final String[] WORDS = ("alpha beta gamma delta meeting budget release draft invoice travel "
+            + "recipe garden backlog sprint review design database migration holiday reminder shopping "
+            + "project deadline call notes idea summary report weekly monthly plan").split(" ");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadDriver.parse(args);
+        File db = new File(options.getOrDefault("db", "data/loadtest.db"));
+        int users = Integer.parseInt(options.getOrDefault("users", "100"));
+        int notes = Integer.parseInt(options.getOrDefault("notes", "10000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "1000"));
+        String password = options.getOrDefault("password", DEFAULT_PASSWORD);
+        // Below the application's calibrated cost the first login of each user rehashes, keep them equal
+        int strength = Integer.parseInt(options.getOrDefault("strength", "10"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+
+        if (db.getParentFile() != null) {
+            db.getParentFile().mkdirs();
+        }
+        String url = "jdbc:sqlite:" + db.getPath();
+        Flyway.configure().dataSource(url, null, null).locations("classpath:db/migration").load().migrate();
+
+        long start = System.nanoTime();
+        // One hash for everybody: hashing is deliberately slow and the load test does not need distinct ones
+        String hash = "{bcrypt}" + new BCryptPasswordEncoder(strength).encode(password);
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA foreign_keys = ON");
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = OFF");
+            }
+            connection.setAutoCommit(false);
+            try {
+                int removed = removePreviousRun(connection);
+                long[] userIds = insertUsers(connection, users, hash, batchSize);
+                insertNotes(connection, userIds, notes, batchSize, random);
+                connection.commit();
+                System.out.printf("%s: %d users and %d notes in %d ms (%d earlier users removed), password %s%n",
+                        db, users, notes, (System.nanoTime() - start) / 1_000_000, removed, password);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static int removePreviousRun(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery(
+                     "SELECT COUNT(*) FROM users WHERE email LIKE 'loadtest-%@example.com'")) {
+            int users = count.getInt(1);
+            // notes go with their users (ON DELETE CASCADE), the FTS triggers keep the index in sync.
+            // The update count would include the cascaded rows, so the users are counted up front.
+            statement.executeUpdate("DELETE FROM users WHERE email LIKE 'loadtest-%@example.com'");
+            return users;
+        }
+    }
+
+    private static long[] insertUsers(Connection connection, int users, String hash, int batchSize)
+            throws SQLException {
+        long[] ids = new long[users];
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (username, email, password, role) VALUES (?, ?, ?, 'USER')")) {
+            for (int i = 0; i < users; i++) {
+                insert.setString(1, "loadtest" + i);
+                insert.setString(2, String.format(EMAIL_FORMAT, i));
+                insert.setString(3, hash);
+                insert.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, email FROM users WHERE email LIKE 'loadtest-%@example.com'");
+             ResultSet rows = select.executeQuery()) {
+            while (rows.next()) {
+                String email = rows.getString(2);
+                int index = Integer.parseInt(email.substring("loadtest-".length(), email.indexOf('@')));
+                ids[index] = rows.getLong(1);
+            }
+        }
+        return ids;
+    }
+
+    private static void insertNotes(Connection connection, long[] userIds, int notes, int batchSize, Random random)
+            throws SQLException {
+        if (userIds.length == 0) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO notes (title, content, user_id) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < notes; i++) {
+                insert.setString(1, sentence(random, 2 + random.nextInt(5)));
+                insert.setString(2, sentence(random, 20 + random.nextInt(180)));
+                insert.setLong(3, userIds[i % userIds.length]);
+                insert.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
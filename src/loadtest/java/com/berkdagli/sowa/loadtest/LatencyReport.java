@@ -0,0 +1,68 @@
+package com.berkdagli.sowa.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and failures per operation. Each client records into its own report, the reports are
+ * merged once the run is over, so recording needs no synchronization.
+ */
+final class LatencyReport {
+
+    private final Map<String, Histogram> latencies = new TreeMap<>();
+    private final Map<String, Long> failures = new TreeMap<>();
+
+    void record(String operation, long startNanos) {
+        latencies.computeIfAbsent(operation, o -> histogram())
+                .recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    void fail(String operation) {
+        failures.merge(operation, 1L, Long::sum);
+    }
+
+    void add(LatencyReport other) {
+        other.latencies.forEach((operation, histogram) ->
+                latencies.computeIfAbsent(operation, o -> histogram()).add(histogram));
+        other.failures.forEach((operation, count) -> failures.merge(operation, count, Long::sum));
+    }
+
+    void print(Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        Histogram total = histogram();
+        long totalFailures = 0;
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s%n",
+                "operation", "ok", "failed", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Map<String, Histogram> operations = new TreeMap<>(latencies);
+        failures.keySet().forEach(operation -> operations.computeIfAbsent(operation, o -> histogram()));
+        for (Map.Entry<String, Histogram> entry : operations.entrySet()) {
+            long failed = failures.getOrDefault(entry.getKey(), 0L);
+            print(entry.getKey(), entry.getValue(), failed, seconds);
+            total.add(entry.getValue());
+            totalFailures += failed;
+        }
+        if (operations.size() > 1) {
+            print("total", total, totalFailures, seconds);
+        }
+    }
+
+    private static void print(String operation, Histogram histogram, long failed, double seconds) {
+        long count = histogram.getTotalCount();
+        System.out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", operation, count, failed,
+                count / seconds, millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+                count == 0 ? 0 : histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Histogram histogram() {
+        // microseconds, 3 significant digits, grows with the largest value seen
+        return new Histogram(3);
+    }
+}
@@ -0,0 +1,166 @@
+package com.berkdagli.sowa.loadtest;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Closed-loop HTTP load: {@code --concurrency} clients each send a request, wait for the response
+ * and send the next one, for {@code --duration}. Prints throughput and p50/p99/p99.9 latencies per
+ * operation.
+ * <p>
+ * By default every client requests {@code --url}. To compare request execution modes, start the
+ * application once as is and once with {@code --spring.threads.virtual.enabled=true} on Java 21+, and run
+ * the same load against both, with a concurrency above Tomcat's 200 worker threads:
+ * <pre>
+ * ./gradlew loadtest -Ploadtest.args="--url=https://localhost:8443/login --insecure --concurrency=800 --duration=60s"
+ * </pre>
+ * {@code --scenario=notes} instead logs the clients in as the users created by {@link DataSeeder} and
+ * works with their notes, see {@link NotesScenario}.
+ */
+public class LoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s").toUpperCase());
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "5s").toUpperCase());
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (options.containsKey("insecure")) {
+            // the bundled keystore is self-signed
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+            builder.sslContext(trustAll());
+        }
+        HttpClient client = builder.build();
+
+        Workload workload;
+        String target;
+        String scenario = options.getOrDefault("scenario", "url");
+        if (scenario.equals("notes")) {
+            NotesScenario notes = new NotesScenario(client, options);
+            workload = notes;
+            target = notes.toString();
+        } else if (scenario.equals("url")) {
+            URI url = URI.create(options.getOrDefault("url", "https://localhost:8443/login"));
+            target = url.toString();
+            HttpRequest request = HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(30)).GET().build();
+            workload = index -> report -> {
+                long start = System.nanoTime();
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    report.fail("GET");
+                } else {
+                    report.record("GET", start);
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario + ", expected url or notes");
+        }
+
+        System.out.printf("%s: %d clients, %s warmup, %s measured%n", target, concurrency, warmup, duration);
+        run(workload, concurrency, warmup, duration).print(duration);
+    }
+
+    /**
+     * What the clients do. {@link #client} is called on the client's own thread before its first step.
+     */
+    interface Workload {
+
+        Client client(int index) throws Exception;
+    }
+
+    interface Client {
+
+        /**
+         * Performs one operation and records it. Exceptions count as a failure of operation "error".
+         */
+        void step(LatencyReport report) throws Exception;
+    }
+
+    private static LatencyReport run(Workload workload, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        LatencyReport[] reports = new LatencyReport[concurrency];
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            int slot = c;
+            clients.execute(() -> {
+                // warmup steps, including the client's setup, go to a report that is thrown away
+                LatencyReport ignored = new LatencyReport();
+                LatencyReport own = new LatencyReport();
+                try {
+                    Client client = workload.client(slot);
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        LatencyReport report = now < measureFrom ? ignored : own;
+                        try {
+                            client.step(report);
+                        } catch (Exception e) {
+                            report.fail("error");
+                        }
+                    }
+                } catch (Exception e) {
+                    own.fail("setup");
+                } finally {
+                    reports[slot] = own;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        clients.shutdown();
+        LatencyReport total = new LatencyReport();
+        for (LatencyReport report : reports) {
+            total.add(report);
+        }
+        return total;
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static SSLContext trustAll() throws Exception {
+        TrustManager trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] {trustAll}, null);
+        return context;
+    }
+}
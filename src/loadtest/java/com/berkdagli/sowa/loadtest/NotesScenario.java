@@ -0,0 +1,249 @@
+package com.berkdagli.sowa.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Browser-like use of the notes pages. Client {@code i} logs in with the form login as
+ * {@code loadtest-<i % users>@example.com} and then picks each step from {@code --mix}, a list of
+ * operation weights: {@code login} (log in again), {@code list} ({@code GET /notes}), {@code create},
+ * {@code update} and {@code delete} (form posts with the CSRF token of the last page). Updates and deletes
+ * target notes seen on the client's last list page.
+ * <p>
+ * The rate limits are meant for real users, so start the instance with rate limiting switched off:
+ * <pre>
+ * ./gradlew loadtestSeed -Ploadtest.args="--db=data/loadtest.db --users=200 --notes=100000"
+ * DB_FILE_NAME=data/loadtest.db ./gradlew bootRun --args="--sowa.rate-limit.excluded-paths=/**"
+ * ./gradlew loadtest -Ploadtest.args="--scenario=notes --url=https://localhost:8443 --insecure --users=200 --concurrency=50"
+ * </pre>
+ */
+final class NotesScenario implements LoadDriver.Workload {
+
+    static final String DEFAULT_MIX = "login:2,list:60,create:15,update:15,delete:8";
+
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Pattern NOTE_ID = Pattern.compile("/notes/edit/(\\d+)");
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final URI base;
+    private final int users;
+    private final String password;
+    private final String mix;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final long seed;
+
+    NotesScenario(HttpClient http, Map<String, String> options) {
+        this.http = http;
+        this.base = URI.create(options.getOrDefault("url", "https://localhost:8443"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "100"));
+        this.password = options.getOrDefault("password", DataSeeder.DEFAULT_PASSWORD);
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.mix = options.getOrDefault("mix", DEFAULT_MIX);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            if (!List.of("login", "list", "create", "update", "delete").contains(parts[0]) || parts.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry: " + entry + ", expected <operation>:<weight>");
+            }
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        operations = weights.keySet().toArray(new String[0]);
+        cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+    }
+
+    @Override
+    public LoadDriver.Client client(int index) {
+        return new NotesClient(String.format(DataSeeder.EMAIL_FORMAT, index % users), new Random(seed + index));
+    }
+
+    @Override
+    public String toString() {
+        return base + " notes scenario (" + users + " users, mix " + mix + ")";
+    }
+
+    private final class NotesClient implements LoadDriver.Client {
+
+        private final String email;
+        private final Random random;
+        private final Map<String, String> cookies = new LinkedHashMap<>();
+        private final List<Long> noteIds = new ArrayList<>();
+        private String csrfToken;
+        private boolean loggedIn;
+
+        NotesClient(String email, Random random) {
+            this.email = email;
+            this.random = random;
+        }
+
+        @Override
+        public void step(LatencyReport report) throws Exception {
+            String operation = loggedIn ? pick() : "login";
+            if ((operation.equals("update") || operation.equals("delete")) && noteIds.isEmpty()) {
+                operation = "create";
+            }
+            long start = System.nanoTime();
+            boolean ok = switch (operation) {
+                case "login" -> login();
+                case "list" -> list();
+                case "create" -> post("/notes", Map.of(
+                        "title", DataSeeder.sentence(random, 3), "content", DataSeeder.sentence(random, 40)));
+                case "update" -> post("/notes/update/" + noteIds.get(random.nextInt(noteIds.size())), Map.of(
+                        "title", DataSeeder.sentence(random, 3), "content", DataSeeder.sentence(random, 40)));
+                case "delete" -> post("/notes/delete/" + noteIds.remove(random.nextInt(noteIds.size())), Map.of());
+                default -> throw new IllegalStateException(operation);
+            };
+            if (ok) {
+                report.record(operation, start);
+            } else {
+                report.fail(operation);
+            }
+        }
+
+        private String pick() {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        /**
+         * What a browser does: fetch the form, post it and follow the redirect to the start page, which
+         * carries the CSRF token of the new session.
+         */
+        private boolean login() throws Exception {
+            cookies.clear();
+            loggedIn = false;
+            HttpResponse<String> form = send(get("/login"));
+            if (form.statusCode() != 200 || !readCsrfToken(form.body())) {
+                return false;
+            }
+            HttpResponse<String> response = send(form("/login", Map.of("email", email, "password", password)));
+            if (response.statusCode() == 503) {
+                // the password hashing pool is full: back off as asked instead of adding to the queue
+                long seconds = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                Thread.sleep(Duration.ofSeconds(seconds).toMillis());
+                return false;
+            }
+            String location = response.headers().firstValue("Location").orElse("");
+            // success goes to the start page; /login?error and a plain /login both mean no session
+            if (response.statusCode() != 302 || location.contains("/login")) {
+                return false;
+            }
+            HttpResponse<String> start = send(get(URI.create(location).getPath()));
+            loggedIn = start.statusCode() == 200 && readCsrfToken(start.body());
+            return loggedIn;
+        }
+
+        private boolean list() throws Exception {
+            HttpResponse<String> response = send(get("/notes"));
+            if (response.statusCode() != 200) {
+                // redirected to the login page: the session is gone
+                loggedIn = false;
+                return false;
+            }
+            readCsrfToken(response.body());
+            noteIds.clear();
+            Matcher ids = NOTE_ID.matcher(response.body());
+            while (ids.find()) {
+                noteIds.add(Long.parseLong(ids.group(1)));
+            }
+            return true;
+        }
+
+        /**
+         * Posts a notes form; success is the redirect back to the list. The next {@code GET /notes}
+         * consumes the flash message, as in a browser.
+         */
+        private boolean post(String path, Map<String, String> fields) throws Exception {
+            HttpResponse<String> response = send(form(path, fields));
+            String location = response.headers().firstValue("Location").orElse("");
+            if (response.statusCode() != 302 || !location.endsWith("/notes")) {
+                loggedIn = response.statusCode() != 403 && !location.contains("/login");
+                return false;
+            }
+            return true;
+        }
+
+        private boolean readCsrfToken(String html) {
+            Matcher matcher = CSRF.matcher(html);
+            if (matcher.find()) {
+                csrfToken = matcher.group(1);
+                return true;
+            }
+            return false;
+        }
+
+        private HttpRequest get(String path) {
+            return request(path).GET().build();
+        }
+
+        private HttpRequest form(String path, Map<String, String> fields) {
+            Map<String, String> body = new LinkedHashMap<>(fields);
+            body.put("_csrf", csrfToken);
+            String encoded = body.entrySet().stream()
+                    .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                            + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                    .collect(Collectors.joining("&"));
+            return request(path)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(encoded))
+                    .build();
+        }
+
+        private HttpRequest.Builder request(String path) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT);
+            if (!cookies.isEmpty()) {
+                builder.header("Cookie", cookies.entrySet().stream()
+                        .map(e -> e.getKey() + "=" + e.getValue())
+                        .collect(Collectors.joining("; ")));
+            }
+            return builder;
+        }
+
+        /**
+         * Sends with this client's cookies. They are kept by hand instead of with a CookieManager so all
+         * clients can share one HttpClient and its connection pool.
+         */
+        private HttpResponse<String> send(HttpRequest request) throws Exception {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            for (String header : response.headers().allValues("Set-Cookie")) {
+                int eq = header.indexOf('=');
+                int end = header.indexOf(';');
+                String name = header.substring(0, eq);
+                String value = header.substring(eq + 1, end < 0 ? header.length() : end);
+                if (value.isEmpty()) {
+                    cookies.remove(name);
+                } else {
+                    cookies.put(name, value);
+                }
+            }
+            return response;
+        }
+    }
+}
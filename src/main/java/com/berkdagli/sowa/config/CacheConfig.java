@@ -0,0 +1,36 @@
+package com.berkdagli.sowa.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are Caffeine-backed and configured through {@code spring.cache.*} in application.properties.
+ * Hit/miss statistics are published as {@code cache.gets} metrics.
+ * <p>
+ * The cache manager is made transaction-aware: inside a transaction, puts and evictions only happen
+ * once it has committed, so a reader cannot re-cache a row that is about to change and an eviction is
+ * never undone by a rollback.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // static: post-processors are created before the rest of the configuration
+    @Bean
+    static BeanPostProcessor transactionAwareCacheManager() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager cacheManager
+                        && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy(cacheManager);
+                }
+                return bean;
+            }
+        };
+    }
+}
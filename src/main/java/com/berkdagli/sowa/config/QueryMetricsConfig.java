@@ -0,0 +1,49 @@
+package com.berkdagli.sowa.config;
+
+import com.berkdagli.sowa.metrics.QueryMetricsListener;
+import com.berkdagli.sowa.metrics.QueryMetricsProperties;
+import com.berkdagli.sowa.metrics.RequestQueryMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Query metrics ({@code sowa.query-metrics.enabled}, on by default): the primary {@code dataSource}, in
+ * performance mode the read/write routing proxy, is wrapped in a datasource-proxy that reports every
+ * statement to {@link QueryMetricsListener}, and {@link RequestQueryMetricsFilter} attributes them to
+ * the HTTP requests that ran them.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sowa.query-metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetricsConfig {
+
+    // static: post-processors are instantiated before regular beans, this one must see "dataSource"
+    @Bean
+    public static BeanPostProcessor queryMetricsDataSourcePostProcessor(
+            ObjectProvider<QueryMetricsProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new QueryMetricsListener(properties.getObject()))
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public RequestQueryMetricsFilter requestQueryMetricsFilter(MeterRegistry registry,
+            QueryMetricsProperties properties) {
+        return new RequestQueryMetricsFilter(registry, properties);
+    }
+}
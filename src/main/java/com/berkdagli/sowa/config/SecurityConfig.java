@@ -2,9 +2,11 @@ package com.berkdagli.sowa.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -16,18 +18,73 @@ public class SecurityConfig {
         private final com.berkdagli.sowa.security.CustomAuthenticationEntryPoint authenticationEntryPoint;
         private final com.berkdagli.sowa.security.SuspiciousRequestFilter suspiciousRequestFilter;
         private final com.berkdagli.sowa.security.RateLimitFilter rateLimitFilter;
+        private final com.berkdagli.sowa.security.jwt.JwtService jwtService;
 
         public SecurityConfig(
                         com.berkdagli.sowa.security.CustomAuthenticationFailureHandler authenticationFailureHandler,
                         com.berkdagli.sowa.security.CustomAccessDeniedHandler accessDeniedHandler,
                         com.berkdagli.sowa.security.CustomAuthenticationEntryPoint authenticationEntryPoint,
                         com.berkdagli.sowa.security.SuspiciousRequestFilter suspiciousRequestFilter,
-                        com.berkdagli.sowa.security.RateLimitFilter rateLimitFilter) {
+                        com.berkdagli.sowa.security.RateLimitFilter rateLimitFilter,
+                        com.berkdagli.sowa.security.jwt.JwtService jwtService) {
                 this.authenticationFailureHandler = authenticationFailureHandler;
                 this.accessDeniedHandler = accessDeniedHandler;
                 this.authenticationEntryPoint = authenticationEntryPoint;
                 this.suspiciousRequestFilter = suspiciousRequestFilter;
                 this.rateLimitFilter = rateLimitFilter;
+                this.jwtService = jwtService;
+        }
+
+        // /api is stateless: bearer access tokens verified in memory, no HttpSession and therefore no CSRF token.
+        // The rate limiter runs after the token filter so PRINCIPAL policies see the authenticated user.
+        @Bean
+        @Order(1)
+        public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http) throws Exception {
+                http
+                                .securityMatcher("/api/**")
+                                .addFilterBefore(new com.berkdagli.sowa.security.jwt.JwtAuthenticationFilter(
+                                                jwtService, authenticationEntryPoint),
+                                                org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
+                                .addFilterAfter(rateLimitFilter,
+                                                com.berkdagli.sowa.security.jwt.JwtAuthenticationFilter.class)
+                                .addFilterAfter(suspiciousRequestFilter,
+                                                com.berkdagli.sowa.security.RateLimitFilter.class)
+                                .authorizeHttpRequests(auth -> auth
+                                                .requestMatchers("/api/register", "/api/login", "/api/token/refresh")
+                                                .permitAll()
+                                                .anyRequest().authenticated())
+                                .sessionManagement(session -> session
+                                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                                .csrf(csrf -> csrf.disable())
+                                .requestCache(cache -> cache.disable())
+                                .exceptionHandling(e -> e
+                                                .accessDeniedHandler(accessDeniedHandler)
+                                                .authenticationEntryPoint(authenticationEntryPoint));
+
+                return http.build();
+        }
+
+        // Actuator: health stays public for load balancers, everything else (the Prometheus scrape) needs an
+        // ADMIN account over HTTP Basic; no session, so scrapes neither create one nor need a CSRF token
+        @Bean
+        @Order(2)
+        public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+                http
+                                .securityMatcher(org.springframework.boot.security.autoconfigure.actuate.web.servlet.EndpointRequest
+                                                .toAnyEndpoint())
+                                .authorizeHttpRequests(auth -> auth
+                                                .requestMatchers(org.springframework.boot.security.autoconfigure.actuate.web.servlet.EndpointRequest
+                                                                .to("health"))
+                                                .permitAll()
+                                                .anyRequest().hasRole("ADMIN"))
+                                .httpBasic(basic -> {
+                                })
+                                .sessionManagement(session -> session
+                                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                                .csrf(csrf -> csrf.disable())
+                                .requestCache(cache -> cache.disable());
+
+                return http.build();
         }
 
         @Bean
@@ -38,7 +95,7 @@ public class SecurityConfig {
                                 .addFilterBefore(suspiciousRequestFilter,
                                                 org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
                                 .authorizeHttpRequests(auth -> auth
-                                                .requestMatchers("/login", "/register", "/api/register", "/api/login",
+                                                .requestMatchers("/login", "/register",
                                                                 "/css/**", "/js/**", "/favicon.ico",
                                                                 "/.well-known/appspecific/com.chrome.devtools.json")
                                                 .permitAll()
@@ -75,8 +132,20 @@ public class SecurityConfig {
                 return http.build();
         }
 
+        // Prefixed hashes ({bcrypt}, {argon2}, {scrypt}) computed on a bounded hashing pool, see PasswordEncoders
+        @Bean
+        public org.springframework.security.crypto.password.PasswordEncoder passwordEncoder(
+                        com.berkdagli.sowa.security.password.PasswordHashingProperties properties,
+                        io.micrometer.core.instrument.MeterRegistry meterRegistry) {
+                return com.berkdagli.sowa.security.password.PasswordEncoders.create(properties, meterRegistry);
+        }
+
+        // Form login; a hash upgrade the hashing pool has no room for is skipped rather than failing the login
         @Bean
-        public org.springframework.security.crypto.password.PasswordEncoder passwordEncoder() {
-                return new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder();
+        public org.springframework.security.authentication.AuthenticationProvider authenticationProvider(
+                        com.berkdagli.sowa.service.UserService userService,
+                        org.springframework.security.crypto.password.PasswordEncoder passwordEncoder) {
+                return new com.berkdagli.sowa.security.password.BestEffortUpgradeAuthenticationProvider(userService,
+                                passwordEncoder, userService);
         }
 }
@@ -4,16 +4,19 @@ import org.apache.catalina.Context;
 import org.apache.catalina.connector.Connector;
 import org.apache.tomcat.util.descriptor.web.SecurityCollection;
 import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.boot.thread.Threading;
 import org.springframework.boot.tomcat.servlet.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.servlet.ServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 @Configuration
 public class ServerConfig {
 
     @Bean
-    public ServletWebServerFactory servletContainer() {
+    public ServletWebServerFactory servletContainer(Environment environment) {
         TomcatServletWebServerFactory tomcat = new TomcatServletWebServerFactory() {
             @Override
             protected void postProcessContext(Context context) {
@@ -25,16 +28,21 @@ public class ServerConfig {
                 context.addConstraint(securityConstraint);
             }
         };
-        tomcat.addAdditionalConnectors(getHttpConnector());
+        tomcat.addAdditionalConnectors(getHttpConnector(Threading.VIRTUAL.isActive(environment)));
         return tomcat;
     }
 
-    private Connector getHttpConnector() {
+    // spring.threads.virtual.enabled=true on Java 21+: Spring Boot moves the main (HTTPS) connector and
+    // the async task executor to virtual threads, but connectors added here have to be switched by hand.
+    private Connector getHttpConnector(boolean virtualThreads) {
         Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
         connector.setScheme("http");
         connector.setPort(8080);
         connector.setSecure(false);
         connector.setRedirectPort(8443);
+        if (virtualThreads) {
+            connector.getProtocolHandler().setExecutor(new VirtualThreadExecutor("sowa-http-"));
+        }
         return connector;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.berkdagli.sowa.config;
+
+import com.berkdagli.sowa.session.CompactSessionSerializer;
+import com.berkdagli.sowa.session.DatabaseSessionRepository;
+import com.berkdagli.sowa.session.SessionStoreProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.session.autoconfigure.SessionProperties;
+import org.springframework.boot.web.server.autoconfigure.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import javax.sql.DataSource;
+
+/**
+ * Database-backed HTTP sessions ({@code sowa.session.store=DATABASE}). Spring Session's filter replaces the
+ * container's in-memory sessions with {@link DatabaseSessionRepository}; the session cookie keeps the
+ * {@code server.servlet.session.cookie.*} settings and the timeout is {@code server.servlet.session.timeout}
+ * unless {@code spring.session.timeout} overrides it.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(prefix = "sowa.session", name = "store", havingValue = "DATABASE")
+public class SessionConfig {
+
+    @Bean
+    public DatabaseSessionRepository sessionRepository(DataSource dataSource, SessionStoreProperties properties,
+            SessionProperties sessionProperties, ServerProperties serverProperties) {
+        return new DatabaseSessionRepository(dataSource,
+                new CompactSessionSerializer(SessionConfig.class.getClassLoader()),
+                sessionProperties.determineTimeout(() -> serverProperties.getServlet().getSession().getTimeout()),
+                properties);
+    }
+}
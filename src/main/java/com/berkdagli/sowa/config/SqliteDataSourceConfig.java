@@ -0,0 +1,84 @@
+package com.berkdagli.sowa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * SQLite performance mode ({@code sowa.sqlite.performance-mode=true}).
+ * <p>
+ * SQLite allows one writer at a time, and in WAL mode readers never block it nor each other. So instead of
+ * a generic pool whose connections fight over the write lock (SQLITE_BUSY), writes are serialized through
+ * a pool with exactly one connection, and read-only transactions are routed to a separate pool of
+ * read-only connections. Every connection is opened with the same pragmas.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sowa.sqlite", name = "performance-mode", havingValue = "true")
+public class SqliteDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteWriterDataSource(DataSourceProperties dataSourceProperties, SqliteProperties sqlite) {
+        SQLiteConfig config = baseConfig(sqlite);
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // Take the write lock at BEGIN rather than at the first write, so a transaction never fails halfway
+        config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+
+        HikariDataSource pool = pool("sqlite-writer", dataSourceProperties.determineUrl(), config);
+        pool.setMaximumPoolSize(1);
+        pool.setConnectionTimeout(sqlite.getWriterAcquireTimeout().toMillis());
+        // SQLiteConfig has no setter for this one
+        pool.setConnectionInitSql("PRAGMA wal_autocheckpoint = " + sqlite.getWalAutocheckpoint());
+        return pool;
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteReaderDataSource(DataSourceProperties dataSourceProperties, SqliteProperties sqlite) {
+        SQLiteConfig config = baseConfig(sqlite);
+        config.setReadOnly(true);
+
+        HikariDataSource pool = pool("sqlite-reader", dataSourceProperties.determineUrl(), config);
+        pool.setMaximumPoolSize(sqlite.getReaderPoolSize());
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    // Hands out the writer by default and a reader once the transaction has been marked read-only.
+    // The physical connection is only fetched on first use, after Spring has applied the read-only flag.
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("sqliteWriterDataSource") DataSource writer,
+            @Qualifier("sqliteReaderDataSource") DataSource reader) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writer);
+        proxy.setReadOnlyDataSource(reader);
+        return proxy;
+    }
+
+    private static SQLiteConfig baseConfig(SqliteProperties sqlite) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout((int) sqlite.getBusyTimeout().toMillis());
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(sqlite.getSynchronous().toUpperCase()));
+        config.enforceForeignKeys(true);
+        return config;
+    }
+
+    // Pools are not started here: the first connection is opened on first use, after Flyway has created
+    // the database file, which read-only connections cannot do themselves.
+    private static HikariDataSource pool(String name, String url, SQLiteConfig config) {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(config);
+        sqliteDataSource.setUrl(url);
+
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setDataSource(sqliteDataSource);
+        return pool;
+    }
+}
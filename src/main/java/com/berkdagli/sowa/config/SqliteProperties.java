@@ -0,0 +1,29 @@
+package com.berkdagli.sowa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.sqlite")
+public class SqliteProperties {
+
+    // WAL, per-connection pragmas, one writer connection and a pool of read-only connections
+    private boolean performanceMode = false;
+
+    // read-only connections used by @Transactional(readOnly = true)
+    private int readerPoolSize = 4;
+
+    // how long SQLite itself retries a locked database before reporting SQLITE_BUSY
+    private Duration busyTimeout = Duration.ofSeconds(5);
+
+    // OFF | NORMAL | FULL | EXTRA; NORMAL is durable against application crashes in WAL mode
+    private String synchronous = "NORMAL";
+
+    // how long a write waits for the single writer connection
+    private Duration writerAcquireTimeout = Duration.ofSeconds(30);
+
+    // pages kept in the WAL before SQLite checkpoints it back into the database file
+    private int walAutocheckpoint = 1000;
+}
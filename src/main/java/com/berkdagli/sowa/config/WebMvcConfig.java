@@ -0,0 +1,21 @@
+package com.berkdagli.sowa.config;
+
+import com.berkdagli.sowa.metrics.ViewRenderMetrics;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final ViewRenderMetrics viewRenderMetrics;
+
+    public WebMvcConfig(ViewRenderMetrics viewRenderMetrics) {
+        this.viewRenderMetrics = viewRenderMetrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(viewRenderMetrics);
+    }
+}
@@ -0,0 +1,165 @@
+package com.berkdagli.sowa.controller;
+
+import com.berkdagli.sowa.dto.AdminNoteRow;
+import com.berkdagli.sowa.dto.NoteExportRow;
+import com.berkdagli.sowa.service.NoteService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Controller
+@RequestMapping("/admin")
+public class AdminController {
+
+    // Rows written between explicit flushes in the streamed page and the export, i.e. roughly one HTTP chunk
+    private static final int FLUSH_EVERY = 100;
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final NoteService noteService;
+    private final ThymeleafViewResolver viewResolver;
+
+    public AdminController(NoteService noteService, ThymeleafViewResolver viewResolver) {
+        this.noteService = noteService;
+        this.viewResolver = viewResolver;
+    }
+
+    @GetMapping
+    public String admin(@RequestParam(required = false) Long after, Model model) {
+        List<AdminNoteRow> rows = noteService.findAdminPage(after);
+        boolean hasNext = rows.size() > NoteService.ADMIN_PAGE_SIZE;
+        if (hasNext) {
+            rows = rows.subList(0, NoteService.ADMIN_PAGE_SIZE);
+        }
+        model.addAttribute("notes", rows);
+        model.addAttribute("nextCursor", hasNext ? rows.get(rows.size() - 1).getId() : null);
+        model.addAttribute("firstPage", after == null);
+        model.addAttribute("streamed", false);
+        return "admin";
+    }
+
+    // Every note on one page, rendered while the cursor is still open: admin.html iterates the rows as
+    // they are read and the response is flushed every FLUSH_EVERY of them, so the first rows reach the
+    // browser before the query has finished and nothing is collected in memory.
+    @GetMapping("/all")
+    public void all(HttpServletRequest request, HttpServletResponse response, Locale locale) throws Exception {
+        View view = viewResolver.resolveViewName("admin", locale);
+        // The logout form's token lives in the session. Create it and commit the headers, which saves the
+        // session, before the read-only transaction is opened and rows start going out
+        CsrfToken csrfToken = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        if (csrfToken != null) {
+            csrfToken.getToken();
+        }
+        response.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8");
+        response.flushBuffer();
+        noteService.withAdminRows(rows -> {
+            Map<String, Object> model = new HashMap<>();
+            model.put("notes", flushingEvery(rows, response));
+            model.put("nextCursor", null);
+            model.put("firstPage", true);
+            model.put("streamed", true);
+            try {
+                view.render(model, request, response);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot render the admin page", e);
+            }
+        });
+    }
+
+    private static Iterator<AdminNoteRow> flushingEvery(Iterator<AdminNoteRow> rows, HttpServletResponse response) {
+        return new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public AdminNoteRow next() {
+                if (read > 0 && read % FLUSH_EVERY == 0) {
+                    try {
+                        response.flushBuffer();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                read++;
+                return rows.next();
+            }
+        };
+    }
+
+    // All notes as CSV with their full content, written while the cursor is still open: the download
+    // starts long before the last note has been read and nothing is collected in memory.
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("id,user,title,content\r\n");
+            int[] written = {0};
+            noteService.forEachExportRow(row -> {
+                try {
+                    writeRow(writer, row);
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("notes.csv").build().toString())
+                .body(body);
+    }
+
+    private static void writeRow(Writer writer, NoteExportRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(csv(row.getOwnerEmail() != null ? row.getOwnerEmail() : "Unknown"));
+        writer.write(',');
+        writer.write(csv(row.getTitle()));
+        writer.write(',');
+        writer.write(csv(row.getContent()));
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 quoting. Values a spreadsheet would evaluate as a formula get a leading quote, since
+    // titles and contents are user input.
+    static String csv(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
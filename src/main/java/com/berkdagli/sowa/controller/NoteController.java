@@ -1,17 +1,24 @@
 package com.berkdagli.sowa.controller;
 
 import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.dto.NotePage;
+import com.berkdagli.sowa.dto.NotesVersion;
 import com.berkdagli.sowa.model.Note;
 import com.berkdagli.sowa.service.NoteService;
+import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
 import java.security.Principal;
-import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Controller
 @RequestMapping("/notes")
@@ -24,12 +31,26 @@ public class NoteController {
     }
 
     @GetMapping
-    public String listNotes(Model model, Principal principal) {
-        List<Note> notes = noteService.findAllByUserEmail(principal.getName());
-        model.addAttribute("notes", notes);
+    public String listNotes(@RequestParam(required = false) Long before,
+                            @RequestParam(required = false) Long after,
+                            Model model, Principal principal, ServletWebRequest webRequest) {
+        if (notModified(webRequest, principal)) {
+            return null; // 304, neither the notes query nor the template runs
+        }
+        NotePage page = noteService.findPageByUserEmail(principal.getName(), before, after);
+        model.addAttribute("notes", page.getNotes());
+        model.addAttribute("page", page);
         return "notes/list"; // Thymeleaf template
     }
 
+    @GetMapping("/search")
+    public String searchNotes(@RequestParam(name = "q", required = false) String query,
+                              @RequestParam(defaultValue = "0") int page,
+                              Model model, Principal principal) {
+        model.addAttribute("result", noteService.search(principal.getName(), query, page));
+        return "notes/search";
+    }
+
     @GetMapping("/new")
     public String showCreateForm(Model model) {
         if (!model.containsAttribute("note")) {
@@ -61,11 +82,15 @@ public class NoteController {
     public String showEditForm(@PathVariable Long id,
                                Model model,
                                Principal principal,
-                               RedirectAttributes redirectAttributes) {
+                               RedirectAttributes redirectAttributes,
+                               ServletWebRequest webRequest) {
         if (id == null || id < 0) {
             redirectAttributes.addFlashAttribute("errorMessage","Note ID cannot be null or less than 0.");
             return "redirect:/notes";
         }
+        if (notModified(webRequest, principal)) {
+            return null;
+        }
         try {
             Note note = noteService.findByIdAndUserEmail(id, principal.getName());
             NoteDto noteDto = new NoteDto();
@@ -109,4 +134,30 @@ public class NoteController {
         }
         return "redirect:/notes";
     }
+
+    /**
+     * Conditional GET for pages that show the user's notes. They are validated against the version of the
+     * whole collection, which any write bumps: a cheap lookup instead of the page's own queries and render.
+     * <p>
+     * The pages also carry the session's CSRF token, so the ETag includes the session: after logging in
+     * again (new session, new token) the browser gets a fresh page. Last-Modified is never older than the
+     * session either, for clients that only revalidate by date. Pages showing a flash message are rendered
+     * without validators, otherwise a later 304 would bring the message back from the browser cache.
+     */
+    private boolean notModified(ServletWebRequest webRequest, Principal principal) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(webRequest.getRequest());
+        if (flash != null && !flash.isEmpty()) {
+            return false;
+        }
+        Optional<NotesVersion> version = noteService.findNotesVersion(principal.getName());
+        if (version.isEmpty()) {
+            return false;
+        }
+        HttpSession session = webRequest.getRequest().getSession(false);
+        String etag = "W/\"" + version.get().getVersion()
+                + (session != null ? "-" + Integer.toHexString(session.getId().hashCode()) : "") + "\"";
+        long lastModified = Math.max(version.get().getUpdatedAt(), session != null ? session.getCreationTime() : 0);
+        return webRequest.checkNotModified(etag, lastModified);
+    }
 }
@@ -2,12 +2,16 @@ package com.berkdagli.sowa.controller;
 
 import com.berkdagli.sowa.dto.UserLoginDto;
 import com.berkdagli.sowa.dto.LoginResponseDto;
+import com.berkdagli.sowa.dto.RefreshTokenRequestDto;
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.dto.UserRegisterDto;
 import com.berkdagli.sowa.dto.UserResponseDto;
 import com.berkdagli.sowa.model.User;
+import com.berkdagli.sowa.security.jwt.JwtService;
 import com.berkdagli.sowa.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -15,9 +19,11 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
+    private final JwtService jwtService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JwtService jwtService) {
         this.userService = userService;
+        this.jwtService = jwtService;
     }
 
     @PostMapping("/register")
@@ -36,9 +42,25 @@ public class UserController {
 
     @PostMapping("/login")
     public ResponseEntity<LoginResponseDto> login(@Valid @RequestBody UserLoginDto request) {
-        User user = userService.authenticate(
+        UserAccount user = userService.authenticate(
                 request.getEmail(),
                 request.getPassword());
-        return ResponseEntity.ok(new LoginResponseDto("Login successful", user.getUsername()));
+        return ResponseEntity.ok(tokenResponse("Login successful", user));
+    }
+
+    // Exchanges a refresh token for a new token pair; the user is re-read so role changes and deleted
+    // accounts take effect here rather than on every request
+    @PostMapping("/token/refresh")
+    public ResponseEntity<LoginResponseDto> refresh(@Valid @RequestBody RefreshTokenRequestDto request) {
+        String email = jwtService.refreshTokenSubject(request.getRefreshToken());
+        UserAccount user = userService.findByEmail(email)
+                .orElseThrow(() -> new BadCredentialsException("Invalid or expired token"));
+        return ResponseEntity.ok(tokenResponse("Token refreshed", user));
+    }
+
+    private LoginResponseDto tokenResponse(String message, UserAccount user) {
+        JwtService.TokenPair tokens = jwtService.issue(user);
+        return new LoginResponseDto(message, user.username(),
+                tokens.accessToken(), tokens.refreshToken(), tokens.expiresIn());
     }
 }
@@ -0,0 +1,17 @@
+package com.berkdagli.sowa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Admin dashboard row: the owner's email comes from the same query, the content is cut to a
+// preview one character longer than displayed, so the view can tell whether to add an ellipsis
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminNoteRow {
+    private Long id;
+    private String ownerEmail;
+    private String title;
+    private String preview;
+}
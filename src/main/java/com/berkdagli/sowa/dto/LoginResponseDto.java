@@ -10,4 +10,17 @@ import lombok.NoArgsConstructor;
 public class LoginResponseDto {
     private String message;
     private String username;
+    private String accessToken;
+    private String refreshToken;
+    private String tokenType = "Bearer";
+    private long expiresIn; // access token lifetime in seconds
+
+    public LoginResponseDto(String message, String username, String accessToken, String refreshToken,
+            long expiresIn) {
+        this.message = message;
+        this.username = username;
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
 }
@@ -0,0 +1,16 @@
+package com.berkdagli.sowa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Admin export row: like AdminNoteRow, but with the full content
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteExportRow {
+    private Long id;
+    private String ownerEmail;
+    private String title;
+    private String content;
+}
@@ -0,0 +1,19 @@
+package com.berkdagli.sowa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One keyset page of notes, newest first. The cursors are note ids; null means there is no such page.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotePage {
+    private List<NoteSummary> notes;
+    // ?after=newerCursor shows the previous (newer) page
+    private Long newerCursor;
+    // ?before=olderCursor shows the next (older) page
+    private Long olderCursor;
+}
@@ -0,0 +1,11 @@
+package com.berkdagli.sowa.dto;
+
+// Row of the native FTS query. An interface projection, because SQLite reports small INTEGER ids as
+// Integer and only Spring Data's projection conversion turns them into Long.
+public interface NoteSearchHit {
+    Long getId();
+
+    String getTitle();
+
+    String getSnippet();
+}
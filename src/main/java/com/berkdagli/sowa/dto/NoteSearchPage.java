@@ -0,0 +1,18 @@
+package com.berkdagli.sowa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of full-text search results, best match first. Pages are numbered from 0.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSearchPage {
+    private String query;
+    private List<NoteSummary> notes;
+    private int page;
+    private boolean hasNext;
+}
@@ -0,0 +1,15 @@
+package com.berkdagli.sowa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// List row for /notes: the title and the first characters of the content, never the full TEXT column
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSummary {
+    private Long id;
+    private String title;
+    private String snippet;
+}
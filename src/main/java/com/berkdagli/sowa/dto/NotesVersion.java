@@ -0,0 +1,9 @@
+package com.berkdagli.sowa.dto;
+
+// Validator of a user's notes collection: version counts every write, updatedAt is the time of the last
+// one in epoch milliseconds. An interface projection for the same reason as NoteSearchHit.
+public interface NotesVersion {
+    Long getVersion();
+
+    Long getUpdatedAt();
+}
@@ -0,0 +1,15 @@
+package com.berkdagli.sowa.dto;
+
+import com.berkdagli.sowa.model.User;
+
+/**
+ * Immutable snapshot of a user row: what the user cache holds and hands to every caller and thread.
+ * Unlike a managed {@link User} it cannot be changed, dirtied or lazily loaded by whoever reads it.
+ */
+public record UserAccount(Long id, String username, String email, String password, String role) {
+
+    public static UserAccount of(User user) {
+        return new UserAccount(user.getId(), user.getUsername(), user.getEmail(), user.getPassword(),
+                user.getRole());
+    }
+}
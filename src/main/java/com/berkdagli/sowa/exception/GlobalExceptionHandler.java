@@ -37,6 +37,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    // Password hashing pool saturated (API login/registration): retryable, not a client error
+    @ExceptionHandler(com.berkdagli.sowa.security.password.PasswordHashingRejectedException.class)
+    @ResponseBody
+    public ResponseEntity<ErrorResponse> handlePasswordHashingRejected(
+            com.berkdagli.sowa.security.password.PasswordHashingRejectedException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(errorResponse);
+    }
+
+    // Invalid, expired or revoked API tokens
+    @ExceptionHandler(org.springframework.security.core.AuthenticationException.class)
+    @ResponseBody
+    public ResponseEntity<ErrorResponse> handleAuthenticationException(
+            org.springframework.security.core.AuthenticationException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.UNAUTHORIZED.value(),
+                "Unauthorized",
+                ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
+    }
+
     // Handle generic RuntimeExceptions (eg logic errors)
     @ExceptionHandler(RuntimeException.class)
     @ResponseBody
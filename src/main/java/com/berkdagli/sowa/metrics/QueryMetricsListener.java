@@ -0,0 +1,79 @@
+package com.berkdagli.sowa.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Adds every statement to the current request's {@link RequestQueryStatistics} and logs slow ones.
+ * A slow statement is logged with the shape of its parameters (type, and length of strings and byte
+ * arrays), never with their values, which may be passwords, session attributes or note contents.
+ */
+public class QueryMetricsListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryMetricsListener.class);
+
+    private final long slowQueryThresholdMillis;
+
+    public QueryMetricsListener(QueryMetricsProperties properties) {
+        this.slowQueryThresholdMillis = properties.getSlowQueryThreshold().toMillis();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueryStatistics statistics = RequestQueryStatistics.current();
+        if (statistics != null) {
+            // ExecutionInfo only has whole milliseconds, most statements here take less
+            statistics.statementStarted(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueryStatistics statistics = RequestQueryStatistics.current();
+        if (statistics != null) {
+            statistics.statementFinished(System.nanoTime());
+        }
+        if (execInfo.getElapsedTime() >= slowQueryThresholdMillis) {
+            for (QueryInfo query : queryInfoList) {
+                log.warn("Slow query ({} ms{}): {} parameters {}", execInfo.getElapsedTime(),
+                        execInfo.isBatch() ? ", batch of " + execInfo.getBatchSize() : "",
+                        query.getQuery().strip(), parameterShapes(query));
+            }
+        }
+    }
+
+    static String parameterShapes(QueryInfo query) {
+        List<List<ParameterSetOperation>> parameters = query.getParametersList();
+        if (parameters.isEmpty()) {
+            return "[]";
+        }
+        // the first set stands for the whole batch: the statement is the same, so are the types
+        StringJoiner shapes = new StringJoiner(", ", "[", "]");
+        for (ParameterSetOperation operation : parameters.get(0)) {
+            Object[] args = operation.getArgs();
+            shapes.add(args.length < 2 || ParameterSetOperation.isSetNullParameterOperation(operation)
+                    ? "null" : shape(args[1]));
+        }
+        return parameters.size() > 1 ? shapes + " x" + parameters.size() : shapes.toString();
+    }
+
+    private static String shape(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        if (value instanceof byte[] bytes) {
+            return "byte[" + bytes.length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,20 @@
+package com.berkdagli.sowa.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.query-metrics")
+public class QueryMetricsProperties {
+
+    // proxy the primary DataSource to count and time every JDBC statement
+    private boolean enabled = true;
+
+    // statements slower than this are logged with the shape (types and lengths) of their parameters
+    private Duration slowQueryThreshold = Duration.ofMillis(100);
+
+    // requests that execute more statements than this are logged, a hint of N+1 access
+    private int requestStatementWarnThreshold = 20;
+}
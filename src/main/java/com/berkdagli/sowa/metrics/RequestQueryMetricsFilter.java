@@ -0,0 +1,80 @@
+package com.berkdagli.sowa.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the statements each request executes and publishes them per route as
+ * {@code sowa.http.queries} (statements per request) and {@code sowa.http.queries.time} (time spent in
+ * JDBC per request). Runs first, so the session and security filters' statements are included.
+ */
+public class RequestQueryMetricsFilter extends OncePerRequestFilter implements Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestQueryMetricsFilter.class);
+
+    private final MeterRegistry registry;
+    private final int statementWarnThreshold;
+
+    public RequestQueryMetricsFilter(MeterRegistry registry, QueryMetricsProperties properties) {
+        this.registry = registry;
+        this.statementWarnThreshold = properties.getRequestStatementWarnThreshold();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStatistics statistics = RequestQueryStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStatistics.end();
+            request.setAttribute(RequestQueryStatistics.ATTRIBUTE, statistics);
+            record(request, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestQueryStatistics statistics) {
+        // the route template, not the raw path, keeps the number of tag values bounded
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("sowa.http.queries")
+                .description("JDBC statements executed per request")
+                .baseUnit("statements")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(200.0)
+                .register(registry)
+                .record(statistics.statements());
+        Timer.builder("sowa.http.queries.time")
+                .description("Time spent executing JDBC statements per request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry)
+                .record(statistics.nanos(), TimeUnit.NANOSECONDS);
+        if (statistics.statements() > statementWarnThreshold) {
+            log.warn("{} {} executed {}", request.getMethod(), request.getRequestURI(), statistics);
+        }
+    }
+}
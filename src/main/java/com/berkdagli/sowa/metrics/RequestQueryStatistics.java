@@ -0,0 +1,79 @@
+package com.berkdagli.sowa.metrics;
+
+/**
+ * Statements executed on behalf of one HTTP request, collected on the request thread by
+ * {@link QueryMetricsListener} while {@link RequestQueryMetricsFilter} has the request open. Work done
+ * for the request on another thread, such as the note write batcher's, is attributed to it by
+ * {@link #attach attaching} the request's statistics there while the work runs.
+ * <p>
+ * The finished statistics are left in the request attribute {@link #ATTRIBUTE}, where tests check them
+ * against a query budget.
+ */
+public final class RequestQueryStatistics {
+
+    public static final String ATTRIBUTE = RequestQueryStatistics.class.getName();
+
+    private static final ThreadLocal<RequestQueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long nanos;
+    private long statementStart;
+
+    static RequestQueryStatistics start() {
+        RequestQueryStatistics statistics = new RequestQueryStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * The statistics of the request this thread is working for, or {@code null}.
+     */
+    public static RequestQueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code statistics} (may be {@code null}) current on this thread until the returned scope is
+     * closed. The request thread must wait for that work to finish before it reads the statistics.
+     */
+    public static Scope attach(RequestQueryStatistics statistics) {
+        RequestQueryStatistics previous = CURRENT.get();
+        CURRENT.set(statistics);
+        return () -> CURRENT.set(previous);
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void statementStarted(long now) {
+        statementStart = now;
+    }
+
+    void statementFinished(long now) {
+        statements++;
+        nanos += now - statementStart;
+    }
+
+    /**
+     * JDBC executions; a batch counts once.
+     */
+    public int statements() {
+        return statements;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements in " + nanos / 1_000_000 + " ms";
+    }
+}
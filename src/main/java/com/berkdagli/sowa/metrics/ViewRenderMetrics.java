@@ -0,0 +1,66 @@
+package com.berkdagli.sowa.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records {@code sowa.view.render}: the time from the handler returning a view name to the request
+ * completing, which the DispatcherServlet spends resolving and rendering the view. Redirects and
+ * handlers that write the response themselves have no view and are not recorded.
+ */
+@Component
+public class ViewRenderMetrics implements HandlerInterceptor {
+
+    private static final String RENDERING = ViewRenderMetrics.class.getName() + ".RENDERING";
+
+    private final MeterRegistry registry;
+    // one timer per template; view names come from the application's controllers, so this stays small
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ViewRenderMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+        if (modelAndView == null) {
+            return;
+        }
+        String view = modelAndView.getViewName();
+        if (view != null && !view.startsWith("redirect:") && !view.startsWith("forward:")) {
+            request.setAttribute(RENDERING, new Rendering(timer(view), System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (ex == null && request.getAttribute(RENDERING) instanceof Rendering rendering) {
+            rendering.timer().record(System.nanoTime() - rendering.start(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String view) {
+        return timers.computeIfAbsent(view, name -> Timer.builder("sowa.view.render")
+                .description("Time spent resolving and rendering views")
+                .tag("view", name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry));
+    }
+
+    private record Rendering(Timer timer, long start) {
+    }
+}
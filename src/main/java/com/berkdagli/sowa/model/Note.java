@@ -28,6 +28,14 @@ public class Note {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Bumped on every write by NoteService, see V6 migration
+    @Column(nullable = false)
+    private long version;
+
+    // Epoch milliseconds
+    @Column(nullable = false)
+    private long updatedAt;
+
     public Note(String title, String content, User user) {
         this.title = title;
         this.content = content;
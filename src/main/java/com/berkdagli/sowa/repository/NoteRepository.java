@@ -1,17 +1,94 @@
 package com.berkdagli.sowa.repository;
 
+import com.berkdagli.sowa.dto.AdminNoteRow;
+import com.berkdagli.sowa.dto.NoteExportRow;
+import com.berkdagli.sowa.dto.NoteSearchHit;
+import com.berkdagli.sowa.dto.NoteSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import com.berkdagli.sowa.model.Note;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
 
     // Standard JPA method
     List<Note> findByUserId(Long userId);
 
-    @Query(value = "SELECT * FROM notes WHERE user_id = :userId", nativeQuery = true)
-    List<Note> findByUserIdNative(@Param("userId") Long userId);
+    // Keyset pagination for the list page: seek on the primary key instead of OFFSET, so every page
+    // costs the same no matter how deep it is. Only a snippet of the content is selected.
+
+    @Query("SELECT new com.berkdagli.sowa.dto.NoteSummary(n.id, n.title, substring(n.content, 1, 200)) "
+            + "FROM Note n WHERE n.user.id = :userId AND n.id < :before ORDER BY n.id DESC")
+    List<NoteSummary> findSummariesBefore(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
+
+    // Ascending, so callers reverse the result to keep newest-first order
+    @Query("SELECT new com.berkdagli.sowa.dto.NoteSummary(n.id, n.title, substring(n.content, 1, 200)) "
+            + "FROM Note n WHERE n.user.id = :userId AND n.id > :after ORDER BY n.id ASC")
+    List<NoteSummary> findSummariesAfter(@Param("userId") Long userId, @Param("after") Long after, Limit limit);
+
+    // Full-text search (notes_fts, see V3 migration), best BM25 match first; title hits weigh more than
+    // content hits. The snippet is taken around the matched terms rather than from the start.
+    @Query(value = "SELECT n.id AS id, n.title AS title, "
+            + "snippet(notes_fts, 1, '', '', '...', 24) AS snippet "
+            + "FROM notes_fts JOIN notes n ON n.id = notes_fts.rowid "
+            + "WHERE notes_fts MATCH :query AND n.user_id = :userId "
+            + "ORDER BY bm25(notes_fts, 5.0, 1.0) LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<NoteSearchHit> search(@Param("userId") Long userId, @Param("query") String query,
+            @Param("limit") int limit, @Param("offset") long offset);
+
+    // Owner-scoped operations: ownership is part of the WHERE clause, so each is a single
+    // statement and the owner is never loaded.
+
+    // JOIN FETCH: Note.user is @NotFound, which Hibernate always loads eagerly, so without it the owner
+    // would still cost a second select
+    @Query("SELECT n FROM Note n JOIN FETCH n.user u WHERE n.id = :id AND u.email = :email")
+    Optional<Note> findByIdAndUserEmail(@Param("id") Long id, @Param("email") String email);
+
+    // Native: in JPQL bulk statements Hibernate turns n.user.id into an EXISTS join on users (because of
+    // @NotFound), which scans notes on every write; see QueryPlanTest
+    @Modifying
+    @Query(value = "UPDATE notes SET title = :title, content = :content, version = version + 1, "
+            + "updated_at = :updatedAt WHERE id = :id AND user_id = :userId", nativeQuery = true)
+    int updateByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId,
+            @Param("title") String title, @Param("content") String content, @Param("updatedAt") long updatedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM notes WHERE id = :id AND user_id = :userId", nativeQuery = true)
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Only used when an owner-scoped operation matched nothing, to tell "not found" from "not yours"
+    @Query("SELECT u.email FROM Note n JOIN n.user u WHERE n.id = :id")
+    Optional<String> findOwnerEmailById(@Param("id") Long id);
+
+    // Admin dashboard: owner joined into the same row, so no per-note user lookups. The paged variant
+    // seeks on id like the user listing; the streaming variants must be consumed inside a transaction.
+
+    @Query("SELECT new com.berkdagli.sowa.dto.AdminNoteRow(n.id, u.email, n.title, substring(n.content, 1, 51)) "
+            + "FROM Note n LEFT JOIN n.user u WHERE n.id > :after ORDER BY n.id ASC")
+    List<AdminNoteRow> findAdminRowsAfter(@Param("after") Long after, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.berkdagli.sowa.dto.AdminNoteRow(n.id, u.email, n.title, substring(n.content, 1, 51)) "
+            + "FROM Note n LEFT JOIN n.user u ORDER BY n.id ASC")
+    Stream<AdminNoteRow> streamAdminRows();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.berkdagli.sowa.dto.NoteExportRow(n.id, u.email, n.title, n.content) "
+            + "FROM Note n LEFT JOIN n.user u ORDER BY n.id ASC")
+    Stream<NoteExportRow> streamExportRows();
 }
@@ -1,14 +1,66 @@
 package com.berkdagli.sowa.repository;
 
+import com.berkdagli.sowa.dto.NotesVersion;
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.model.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
 
+    String USERS_BY_EMAIL = "usersByEmail";
+
+    // Looked up on every authenticated request, cached until the user is written. The cache holds an
+    // immutable snapshot rather than the entity, and evictions wait for the commit (see CacheConfig).
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = USERS_BY_EMAIL, key = "#p0", unless = "#result == null")
+    @Query("SELECT new com.berkdagli.sowa.dto.UserAccount(u.id, u.username, u.email, u.password, u.role) "
+            + "FROM User u WHERE u.email = :email")
+    Optional<UserAccount> findByEmail(@Param("email") String email);
+
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
+
+    @Override
+    @CacheEvict(cacheNames = USERS_BY_EMAIL, key = "#p0.email")
+    <S extends User> S save(S user);
+
+    @Override
+    @CacheEvict(cacheNames = USERS_BY_EMAIL, key = "#p0.email")
+    void delete(User user);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @CacheEvict(cacheNames = USERS_BY_EMAIL, key = "#p0")
+    @Query("UPDATE User u SET u.role = :role WHERE u.email = :email")
+    int updateRoleByEmail(@Param("email") String email, @Param("role") String role);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @CacheEvict(cacheNames = USERS_BY_EMAIL, key = "#p0")
+    @Query("UPDATE User u SET u.password = :password WHERE u.email = :email")
+    int updatePasswordByEmail(@Param("email") String email, @Param("password") String password);
+
+    // The notes collection version (V6 migration) is read and written natively: it is not mapped on User,
+    // so bumping it neither dirties nor evicts the cached users
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT notes_version AS version, notes_updated_at AS updatedAt FROM users WHERE email = :email",
+            nativeQuery = true)
+    Optional<NotesVersion> findNotesVersionByEmail(@Param("email") String email);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE users SET notes_version = notes_version + 1, notes_updated_at = :updatedAt WHERE id = :id",
+            nativeQuery = true)
+    int incrementNotesVersion(@Param("id") Long id, @Param("updatedAt") long updatedAt);
 }
@@ -1,10 +1,10 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,7 +16,11 @@ import java.io.IOException;
 @Component
 public class CustomAccessDeniedHandler implements AccessDeniedHandler {
 
-    private static final Logger logger = LoggerFactory.getLogger(CustomAccessDeniedHandler.class);
+    private final SecurityEventPublisher securityEvents;
+
+    public CustomAccessDeniedHandler(SecurityEventPublisher securityEvents) {
+        this.securityEvents = securityEvents;
+    }
 
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response,
@@ -28,11 +32,17 @@ public class CustomAccessDeniedHandler implements AccessDeniedHandler {
         String remoteAddr = request.getRemoteAddr();
 
         // SECURE LOGGING: Log 403 Forbidden attempts
-        logger.warn("Unauthorized access attempt (403). User: '{}', Resource: '{}', IP: '{}'",
+        securityEvents.publish(SecurityEventType.ACCESS_DENIED, remoteAddr, uri,
                 user, uri, remoteAddr);
 
         response.setStatus(HttpServletResponse.SC_FORBIDDEN);
 
+        if (uri.startsWith(request.getContextPath() + "/api/")) {
+            response.setContentType("application/json");
+            response.getWriter().write("{\"status\":403,\"error\":\"Forbidden\"}");
+            return;
+        }
+
         request.getRequestDispatcher("/access-denied").forward(request, response);
     }
 }
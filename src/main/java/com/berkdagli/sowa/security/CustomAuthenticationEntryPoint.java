@@ -1,10 +1,10 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
@@ -14,7 +14,11 @@ import java.io.IOException;
 @Component
 public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
-    private static final Logger logger = LoggerFactory.getLogger(CustomAuthenticationEntryPoint.class);
+    private final SecurityEventPublisher securityEvents;
+
+    public CustomAuthenticationEntryPoint(SecurityEventPublisher securityEvents) {
+        this.securityEvents = securityEvents;
+    }
 
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response,
@@ -25,9 +29,22 @@ public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint
 
         // SECURE LOGGING: Log 401 Unauthorized attempts (unauthenticated access to
         // protected resource)
-        logger.warn("Unauthenticated access attempt (401). Resource: '{}', IP: '{}', Msg: {}",
+        securityEvents.publish(SecurityEventType.UNAUTHENTICATED, remoteAddr, uri,
                 uri, remoteAddr, authException.getMessage());
 
+        if (isApiRequest(request)) {
+            // API clients authenticate with bearer tokens; a redirect to the login page means nothing to them
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"status\":401,\"error\":\"Unauthorized\"}");
+            return;
+        }
+
         response.sendRedirect(request.getContextPath() + "/login");
     }
+
+    private static boolean isApiRequest(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
 }
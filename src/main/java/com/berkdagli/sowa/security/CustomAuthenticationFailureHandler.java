@@ -1,10 +1,11 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
+import com.berkdagli.sowa.security.password.PasswordHashingRejectedException;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.core.AuthenticationException;
 
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
@@ -15,9 +16,10 @@ import java.io.IOException;
 @Component
 public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationFailureHandler {
 
-    private static final Logger logger = LoggerFactory.getLogger(CustomAuthenticationFailureHandler.class);
+    private final SecurityEventPublisher securityEvents;
 
-    public CustomAuthenticationFailureHandler() {
+    public CustomAuthenticationFailureHandler(SecurityEventPublisher securityEvents) {
+        this.securityEvents = securityEvents;
         setDefaultFailureUrl("/login?error");
     }
 
@@ -25,12 +27,21 @@ public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationF
     public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
             AuthenticationException exception) throws IOException, ServletException {
 
+        if (exception instanceof PasswordHashingRejectedException) {
+            // Not a failed login: the credentials were never checked, so ask the client to come back.
+            // Written here rather than with sendError: the /error page requires a login and would turn it into a redirect.
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write(exception.getMessage());
+            return;
+        }
+
         String username = request.getParameter("email"); // Assuming email is used as username as per SecurityConfig
         String remoteAddr = request.getRemoteAddr();
         String userAgent = request.getHeader("User-Agent");
 
         // SECURE LOGGING: Log failing username and IP, but NEVER the password!
-        logger.warn("Failed login attempt. Username: '{}', IP: '{}', User-Agent: '{}', Reason: {}",
+        securityEvents.publish(SecurityEventType.LOGIN_FAILURE, remoteAddr, username,
                 username, remoteAddr, userAgent, exception.getMessage());
 
         super.onAuthenticationFailure(request, response, exception);
@@ -1,35 +1,54 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.ratelimit.RateLimitPolicies;
+import com.berkdagli.sowa.security.ratelimit.RateLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
-public class RateLimitFilter extends OncePerRequestFilter {
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
 
-    private final Map<String, UserBucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitPolicies policies;
+    // null until bound, and in the unit tests and benchmarks that construct the filter themselves
+    private volatile Timer decisionTime;
 
-    // allow 100 requests per minute
-    private static final long CAPACITY = 100;
-    private static final long REFILL_DURATION_SECONDS = 60; // 1 minute
+    public RateLimitFilter() {
+        this(new RateLimitProperties());
+    }
+
+    @Autowired
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.policies = RateLimitPolicies.from(properties);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // static assets skip the limiter entirely
+        return policies.isExcluded(request);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        String ip = request.getRemoteAddr();
-        UserBucket bucket = buckets.computeIfAbsent(ip, k -> new UserBucket());
-
-        if (bucket.tryConsume()) {
+        long start = System.nanoTime();
+        boolean allowed = policies.resolve(request).tryAcquire(request);
+        Timer timer = decisionTime;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (allowed) {
             filterChain.doFilter(request, response);
         } else {
             response.setStatus(429); // Too Many Requests
@@ -37,34 +56,13 @@ public class RateLimitFilter extends OncePerRequestFilter {
         }
     }
 
-    private static class UserBucket {
-        private long tokens;
-        private Instant lastRefill;
-
-        public UserBucket() {
-            this.tokens = CAPACITY;
-            this.lastRefill = Instant.now();
-        }
-
-        public synchronized boolean tryConsume() {
-            refill();
-            if (tokens > 0) {
-                tokens--;
-                return true;
-            }
-            return false;
-        }
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        decisionTime = SecurityFilterMetrics.timer("rate-limit", registry);
+    }
 
-        private void refill() {
-            Instant now = Instant.now();
-            long secondsElapsed = Duration.between(lastRefill, now).getSeconds();
-            if (secondsElapsed > 0) {
-                long tokensToAdd = (secondsElapsed * CAPACITY) / REFILL_DURATION_SECONDS;
-                if (tokensToAdd > 0) {
-                    tokens = Math.min(CAPACITY, tokens + tokensToAdd);
-                    lastRefill = now;
-                }
-            }
-        }
+    @Override
+    public void destroy() {
+        policies.close();
     }
 }
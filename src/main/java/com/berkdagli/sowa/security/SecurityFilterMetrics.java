@@ -0,0 +1,26 @@
+package com.berkdagli.sowa.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+/**
+ * The {@code sowa.security.filter} timer: time a security filter spends on its own work, without the
+ * rest of the filter chain. Bounded to 1µs..100ms, so the percentile histogram stays small.
+ */
+final class SecurityFilterMetrics {
+
+    private SecurityFilterMetrics() {
+    }
+
+    static Timer timer(String filter, MeterRegistry registry) {
+        return Timer.builder("sowa.security.filter")
+                .description("Time security filters spend on their own work, excluding the rest of the chain")
+                .tag("filter", filter)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(registry);
+    }
+}
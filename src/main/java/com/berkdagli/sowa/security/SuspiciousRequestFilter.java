@@ -1,54 +1,106 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
+import com.berkdagli.sowa.security.inspection.InspectingRequestWrapper;
+import com.berkdagli.sowa.security.inspection.SignatureLoader;
+import com.berkdagli.sowa.security.inspection.SignatureScanner;
+import com.berkdagli.sowa.security.inspection.SuspiciousRequestProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
 @Component
-public class SuspiciousRequestFilter extends OncePerRequestFilter {
+public class SuspiciousRequestFilter extends OncePerRequestFilter implements MeterBinder {
 
-    private static final Logger logger = LoggerFactory.getLogger(SuspiciousRequestFilter.class);
+    private final SignatureScanner scanner;
+    private final SecurityEventPublisher securityEvents;
+    private final SuspiciousRequestProperties.Mode mode;
+    private final long maxInspectedLength;
+    // null until bound, and in the unit tests and benchmarks that construct the filter themselves
+    private volatile Timer inspectionTime;
+
+    public SuspiciousRequestFilter(SuspiciousRequestProperties properties, ResourceLoader resourceLoader,
+            SecurityEventPublisher securityEvents) {
+        this.scanner = SignatureLoader.load(properties, resourceLoader);
+        this.securityEvents = securityEvents;
+        this.mode = properties.getMode();
+        this.maxInspectedLength = properties.getMaxInspectedLength();
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
+        if (mode == SuspiciousRequestProperties.Mode.STREAMING) {
+            // inspect parameters and body as downstream code reads them, whatever it left unread afterwards
+            InspectingRequestWrapper wrapper =
+                    new InspectingRequestWrapper(request, scanner, maxInspectedLength, this::report);
+            try {
+                filterChain.doFilter(wrapper, response);
+            } finally {
+                // a request rejected downstream (401, 403, 429, ...) never got to ignore anything
+                if (response.getStatus() < HttpServletResponse.SC_BAD_REQUEST) {
+                    wrapper.inspectUnreadParameters();
+                }
+                record(wrapper.inspectionNanos());
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        long remaining = maxInspectedLength;
         Enumeration<String> parameterNames = request.getParameterNames();
-        while (parameterNames.hasMoreElements()) {
+        while (parameterNames.hasMoreElements() && remaining > 0) {
             String paramName = parameterNames.nextElement();
             String[] values = request.getParameterValues(paramName);
 
             if (values != null) {
                 for (String value : values) {
-                    if (isSuspicious(value)) {
-                        String remoteAddr = request.getRemoteAddr();
-                        String uri = request.getRequestURI();
-                        logger.warn("Suspicious input detected. IP: '{}', URI: '{}', Param: '{}', Value: '{}'",
-                                remoteAddr, uri, paramName, value);
+                    if (value == null)
+                        continue;
+                    int limit = (int) Math.min(value.length(), remaining);
+                    remaining -= limit;
+                    // single pass over all signatures, no lower-cased copy of the value
+                    int signature = scanner.find(value, limit);
+                    if (signature != SignatureScanner.NO_MATCH) {
+                        report(request, paramName, scanner.signature(signature), value);
                     }
                 }
             }
         }
+        record(System.nanoTime() - start);
 
         filterChain.doFilter(request, response);
     }
 
-    private boolean isSuspicious(String value) {
-        if (value == null)
-            return false;
-        // Basic checks for common attack vectors
-        String lowerValue = value.toLowerCase();
-        return lowerValue.contains("<script>") ||
-                lowerValue.contains("union select") ||
-                lowerValue.contains("drop table") ||
-                lowerValue.contains("exec(");
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        inspectionTime = SecurityFilterMetrics.timer("suspicious-request", registry);
+    }
+
+    private void record(long nanos) {
+        Timer timer = inspectionTime;
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void report(HttpServletRequest request, String paramName, String signature, String value) {
+        String remoteAddr = request.getRemoteAddr();
+        String uri = request.getRequestURI();
+        securityEvents.publish(SecurityEventType.SUSPICIOUS_INPUT, remoteAddr, signature,
+                remoteAddr, uri, paramName, signature, securityEvents.excerpt(value));
     }
 }
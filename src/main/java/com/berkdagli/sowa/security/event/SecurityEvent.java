@@ -0,0 +1,12 @@
+package com.berkdagli.sowa.security.event;
+
+/**
+ * One security event waiting to be written.
+ *
+ * @param source    client address or user the event is attributed to
+ * @param signature what happened, used with {@code type} and {@code source} to detect repeats
+ * @param arguments arguments for {@link SecurityEventType#getMessage()}
+ */
+public record SecurityEvent(SecurityEventType type, long timestamp, String source, String signature,
+        Object[] arguments) {
+}
@@ -0,0 +1,25 @@
+package com.berkdagli.sowa.security.event;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.security.events")
+public class SecurityEventProperties {
+
+    private int queueCapacity = 4096;
+    private int batchSize = 256;
+
+    // repeats of the same type/source/signature within this window are counted, not written
+    private Duration aggregationWindow = Duration.ofSeconds(10);
+    private int maxTrackedKeys = 10_000;
+
+    // above this many distinct events per second only 1 in sampleRate is written
+    private int sampleThresholdPerSecond = 200;
+    private int sampleRate = 10;
+
+    // longest parameter value excerpt kept in an event
+    private int maxValueLength = 200;
+}
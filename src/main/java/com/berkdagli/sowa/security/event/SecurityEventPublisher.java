@@ -0,0 +1,229 @@
+package com.berkdagli.sowa.security.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves security logging off the request thread.
+ * <p>
+ * {@link #publish} only does a map lookup and, for the first occurrence of an event in
+ * the aggregation window, a non-blocking enqueue. Repeats of the same type, source and
+ * signature within the window are counted and reported once as a summary when the window
+ * closes. When the aggregation table is full new events are still written, just not
+ * aggregated. Above a configurable rate of distinct events, new events are sampled. A single
+ * background thread drains the queue in batches and does all the message formatting and
+ * appender I/O. Everything that is not written is counted and exposed as metrics.
+ */
+@Component
+public class SecurityEventPublisher implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.berkdagli.sowa.security.events");
+
+    private final SecurityEventProperties properties;
+    private final SecurityEventRingBuffer queue;
+    private final ConcurrentHashMap<AggregationKey, Aggregate> aggregates = new ConcurrentHashMap<>();
+    // windows closed by a publisher before the writer got to them, still to be summarised
+    private final ConcurrentLinkedQueue<Map.Entry<AggregationKey, Aggregate>> closedWindows =
+            new ConcurrentLinkedQueue<>();
+    private final long windowMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong secondStart = new AtomicLong();
+    private final AtomicLong eventsThisSecond = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong aggregated = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong unaggregated = new AtomicLong();
+
+    public SecurityEventPublisher(SecurityEventProperties properties) {
+        this.properties = properties;
+        this.queue = new SecurityEventRingBuffer(properties.getQueueCapacity());
+        this.windowMillis = properties.getAggregationWindow().toMillis();
+        this.writer = new Thread(this::drainLoop, "security-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Records a security event without blocking the caller.
+     *
+     * @param source    client address or user the event is attributed to
+     * @param signature what happened; repeats of the same type, source and signature are aggregated
+     * @param arguments arguments for the message of {@code type}
+     */
+    public void publish(SecurityEventType type, String source, String signature, Object... arguments) {
+        published.incrementAndGet();
+        long now = System.currentTimeMillis();
+
+        AggregationKey key = new AggregationKey(type, source, signature);
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate != null && now - aggregate.windowStart < windowMillis) {
+            aggregate.repeats.incrementAndGet();
+            aggregated.incrementAndGet();
+            return;
+        }
+        if (aggregate == null && aggregates.size() >= properties.getMaxTrackedKeys()) {
+            // Table full, possibly filled with noise on purpose: the event is still written, only not
+            // aggregated. The writer frees the table again as the windows close.
+            unaggregated.incrementAndGet();
+        } else if (!openWindow(key, now)) {
+            // another publisher opened the window first
+            aggregated.incrementAndGet();
+            return;
+        }
+
+        if (!sample(now)) {
+            sampledOut.incrementAndGet();
+            return;
+        }
+        if (!queue.offer(new SecurityEvent(type, now, source, signature, arguments))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Starts a new aggregation window for key unless a concurrent publisher just did, in which case this
+    // event is counted as its repeat. Returns whether this event opened the window.
+    private boolean openWindow(AggregationKey key, long now) {
+        boolean[] opened = new boolean[1];
+        aggregates.compute(key, (k, current) -> {
+            if (current != null && now - current.windowStart < windowMillis) {
+                current.repeats.incrementAndGet();
+                return current;
+            }
+            if (current != null && current.repeats.get() > 0) {
+                closedWindows.offer(Map.entry(k, current));
+            }
+            opened[0] = true;
+            return new Aggregate(now);
+        });
+        return opened[0];
+    }
+
+    /**
+     * Shortens request values before they are queued so the queue never pins large bodies.
+     */
+    public String excerpt(String value) {
+        int max = properties.getMaxValueLength();
+        return value == null || value.length() <= max ? value : value.substring(0, max) + "...";
+    }
+
+    private boolean sample(long now) {
+        long second = now / 1000;
+        long current = secondStart.get();
+        if (current != second && secondStart.compareAndSet(current, second)) {
+            eventsThisSecond.set(0);
+        }
+        long count = eventsThisSecond.incrementAndGet();
+        return count <= properties.getSampleThresholdPerSecond() || count % properties.getSampleRate() == 0;
+    }
+
+    private void drainLoop() {
+        long lastSweep = System.currentTimeMillis();
+        while (running || queue.size() > 0) {
+            int drained = drainBatch();
+
+            long now = System.currentTimeMillis();
+            if (now - lastSweep >= windowMillis || !running) {
+                flushAggregates(now, !running);
+                lastSweep = now;
+            }
+            if (drained == 0 && running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            }
+        }
+    }
+
+    private int drainBatch() {
+        int drained = 0;
+        SecurityEvent event;
+        while (drained < properties.getBatchSize() && (event = queue.poll()) != null) {
+            logger.warn(event.type().getMessage(), event.arguments());
+            written.incrementAndGet();
+            drained++;
+        }
+        return drained;
+    }
+
+    private void flushAggregates(long now, boolean all) {
+        Map.Entry<AggregationKey, Aggregate> closed;
+        while ((closed = closedWindows.poll()) != null) {
+            writeSummary(closed.getKey(), closed.getValue());
+        }
+        for (Map.Entry<AggregationKey, Aggregate> entry : aggregates.entrySet()) {
+            Aggregate aggregate = entry.getValue();
+            if ((all || now - aggregate.windowStart >= windowMillis)
+                    && aggregates.remove(entry.getKey(), aggregate)) {
+                writeSummary(entry.getKey(), aggregate);
+            }
+        }
+    }
+
+    private void writeSummary(AggregationKey key, Aggregate aggregate) {
+        long repeats = aggregate.repeats.get();
+        if (repeats > 0) {
+            logger.warn("Suppressed {} repeated {} events. Source: '{}', Signature: '{}', Window: {}s",
+                    repeats, key.type(), key.source(), key.signature(), windowMillis / 1000);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sowa.security.events.published", published, AtomicLong::get)
+                .description("Security events reported by the application")
+                .register(registry);
+        FunctionCounter.builder("sowa.security.events.written", written, AtomicLong::get)
+                .description("Security events written to the log")
+                .register(registry);
+        FunctionCounter.builder("sowa.security.events.aggregated", aggregated, AtomicLong::get)
+                .description("Repeated security events folded into a summary line")
+                .register(registry);
+        FunctionCounter.builder("sowa.security.events.sampled", sampledOut, AtomicLong::get)
+                .description("Security events skipped by rate-based sampling")
+                .register(registry);
+        FunctionCounter.builder("sowa.security.events.dropped", dropped, AtomicLong::get)
+                .description("Security events dropped because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("sowa.security.events.unaggregated", unaggregated, AtomicLong::get)
+                .description("Security events written without aggregation because the aggregation table was full")
+                .register(registry);
+        Gauge.builder("sowa.security.events.queue.size", queue, SecurityEventRingBuffer::size)
+                .description("Security events waiting to be written")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private record AggregationKey(SecurityEventType type, String source, String signature) {
+    }
+
+    private static final class Aggregate {
+        final long windowStart;
+        final AtomicLong repeats = new AtomicLong();
+
+        Aggregate(long windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.berkdagli.sowa.security.event;
+
+/**
+ * Kinds of security events and the log line each one is written as.
+ */
+public enum SecurityEventType {
+
+    SUSPICIOUS_INPUT("Suspicious input detected. IP: '{}', URI: '{}', Param: '{}', Signature: '{}', Value: '{}'"),
+    LOGIN_FAILURE("Failed login attempt. Username: '{}', IP: '{}', User-Agent: '{}', Reason: {}"),
+    ACCESS_DENIED("Unauthorized access attempt (403). User: '{}', Resource: '{}', IP: '{}'"),
+    UNAUTHENTICATED("Unauthenticated access attempt (401). Resource: '{}', IP: '{}', Msg: {}"),
+    NOTE_ACCESS_DENIED(
+            "Unauthorized note access attempt. User: '{}' tried to access Note ID: '{}' owned by User: '{}'");
+
+    private final String message;
+
+    SecurityEventType(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
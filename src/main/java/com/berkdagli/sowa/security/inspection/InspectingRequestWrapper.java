@@ -0,0 +1,295 @@
+package com.berkdagli.sowa.security.inspection;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inspects request input only when, and as, downstream code reads it.
+ * <p>
+ * Parameter values are scanned the first time a parameter is accessed, directly on the
+ * strings the container already parsed, so a large form body is never parsed early or
+ * copied for inspection. Bodies read through {@link #getInputStream()} or
+ * {@link #getReader()} are scanned chunk by chunk as they pass through, carrying the
+ * automaton state across reads. Parameters the application never read are inspected by
+ * {@link #inspectUnreadParameters()} once the request has been handled, without parsing a
+ * form body nobody asked for. At most
+ * {@code maxInspectedLength} characters are inspected per request; anything beyond that is
+ * passed through unchecked.
+ */
+public class InspectingRequestWrapper extends HttpServletRequestWrapper {
+
+    /**
+     * Receives the first signature found in a parameter or in the body.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param source parameter name, or {@code "<body>"} for streamed content
+         * @param value  the offending parameter value, or {@code null} for streamed content
+         */
+        void onSuspiciousInput(HttpServletRequest request, String source, String signature, String value);
+    }
+
+    static final String BODY = "<body>";
+
+    private final SignatureScanner scanner;
+    private final Listener listener;
+    private long remaining;
+    private Set<String> inspectedParameters;
+    // set once downstream code made the container parse the parameters, form body included
+    private boolean parametersParsed;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+    // automaton state shared by the stream and reader views of the body
+    private int bodyState;
+    private boolean bodyReported;
+    private long inspectionNanos;
+
+    public InspectingRequestWrapper(HttpServletRequest request, SignatureScanner scanner, long maxInspectedLength,
+            Listener listener) {
+        super(request);
+        this.scanner = scanner;
+        this.remaining = maxInspectedLength;
+        this.listener = listener;
+        this.bodyState = scanner.start();
+    }
+
+    /**
+     * Time spent scanning parameters and bulk body reads so far. Single-byte reads are not timed, the
+     * clock would cost more than the scan.
+     */
+    public long inspectionNanos() {
+        return inspectionNanos;
+    }
+
+    /**
+     * Inspects the parameters downstream code did not access, so input the application ignored is still
+     * reported. If the parameters were never parsed and the request carries a form body, only the query
+     * string is inspected: parsing the body now would cost what streaming inspection saves. A body consumed
+     * through the stream or reader has been scanned while it was read.
+     */
+    public void inspectUnreadParameters() {
+        if (remaining <= 0) {
+            return;
+        }
+        if (parametersParsed || !hasFormBody()) {
+            // without a form body the container only has the query string to parse
+            super.getParameterMap().forEach(this::inspectParameter);
+        } else {
+            queryParameters().forEach((name, values) -> inspectParameter(name, values.toArray(String[]::new)));
+        }
+    }
+
+    @Override
+    public String getParameter(String name) {
+        parametersParsed = true;
+        inspectParameter(name, super.getParameterValues(name));
+        return super.getParameter(name);
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        parametersParsed = true;
+        String[] values = super.getParameterValues(name);
+        inspectParameter(name, values);
+        return values;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        parametersParsed = true;
+        Map<String, String[]> parameters = super.getParameterMap();
+        parameters.forEach(this::inspectParameter);
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        parametersParsed = true;
+        return super.getParameterNames();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new InspectingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InspectingReader(super.getReader()));
+        }
+        return reader;
+    }
+
+    private boolean hasFormBody() {
+        String contentType = getContentType();
+        return contentType != null
+                && (contentType.regionMatches(true, 0, "application/x-www-form-urlencoded", 0, 33)
+                        || contentType.regionMatches(true, 0, "multipart/form-data", 0, 19));
+    }
+
+    private Map<String, List<String>> queryParameters() {
+        String query = getQueryString();
+        if (query == null || query.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            String value = separator < 0 ? "" : decode(pair.substring(separator + 1));
+            parameters.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    // malformed escapes are inspected as sent
+    private static String decode(String encoded) {
+        try {
+            return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return encoded;
+        }
+    }
+
+    private void inspectParameter(String name, String[] values) {
+        if (values == null || remaining <= 0) {
+            return;
+        }
+        if (inspectedParameters == null) {
+            inspectedParameters = new HashSet<>();
+        }
+        if (!inspectedParameters.add(name)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            scanParameter(name, values);
+        } finally {
+            inspectionNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void scanParameter(String name, String[] values) {
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            int limit = (int) Math.min(value.length(), remaining);
+            remaining -= limit;
+            int match = scanner.find(value, limit);
+            if (match != SignatureScanner.NO_MATCH) {
+                listener.onSuspiciousInput(this, name, scanner.signature(match), value);
+                return;
+            }
+            if (remaining <= 0) {
+                return;
+            }
+        }
+    }
+
+    private void inspectBody(char c) {
+        bodyState = scanner.advance(bodyState, c);
+        int match = scanner.matchAt(bodyState);
+        if (match != SignatureScanner.NO_MATCH) {
+            bodyReported = true;
+            listener.onSuspiciousInput(this, BODY, scanner.signature(match), null);
+        }
+    }
+
+    private boolean inspectingBody() {
+        return !bodyReported && remaining > 0;
+    }
+
+    private final class InspectingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        InspectingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0 && inspectingBody()) {
+                remaining--;
+                inspectBody((char) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            long start = System.nanoTime();
+            // bytes are inspected as ISO-8859-1: ASCII signatures match regardless of the body encoding
+            for (int i = 0; i < read && inspectingBody(); i++) {
+                remaining--;
+                inspectBody((char) (buffer[offset + i] & 0xFF));
+            }
+            inspectionNanos += System.nanoTime() - start;
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+
+    private final class InspectingReader extends Reader {
+
+        private final Reader delegate;
+
+        InspectingReader(Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            long start = System.nanoTime();
+            for (int i = 0; i < read && inspectingBody(); i++) {
+                remaining--;
+                inspectBody(buffer[offset + i]);
+            }
+            inspectionNanos += System.nanoTime() - start;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
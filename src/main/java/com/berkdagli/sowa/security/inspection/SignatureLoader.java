@@ -0,0 +1,47 @@
+package com.berkdagli.sowa.security.inspection;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the {@link SignatureScanner} from the configured signatures and signature file.
+ */
+public final class SignatureLoader {
+
+    private SignatureLoader() {
+    }
+
+    public static SignatureScanner load(SuspiciousRequestProperties properties, ResourceLoader resourceLoader) {
+        List<String> signatures = new ArrayList<>(properties.getSignatures());
+        String file = properties.getSignaturesFile();
+        if (file != null && !file.isBlank()) {
+            signatures.addAll(readSignatures(resourceLoader.getResource(file)));
+        }
+        return SignatureScanner.compile(signatures);
+    }
+
+    static List<String> readSignatures(Resource resource) {
+        List<String> signatures = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String signature = line.strip();
+                if (!signature.isEmpty() && !signature.startsWith("#")) {
+                    signatures.add(signature);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read suspicious request signatures from " + resource, e);
+        }
+        return signatures;
+    }
+}
@@ -0,0 +1,205 @@
+package com.berkdagli.sowa.security.inspection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Case-insensitive multi-signature matcher (Aho-Corasick compiled into a DFA).
+ * <p>
+ * All signatures are matched in a single pass over the input with one table lookup per
+ * character, regardless of how many signatures there are, and without allocating or
+ * lower-casing the input. Case folding is done at compile time: every character whose
+ * lower case form appears in a signature is mapped to the same alphabet class.
+ * <p>
+ * Besides {@link #find(CharSequence)}, the automaton can be driven one character at a
+ * time through {@link #advance(int, char)} so that callers can scan streamed input.
+ * Instances are immutable and thread-safe.
+ */
+public final class SignatureScanner {
+
+    public static final int NO_MATCH = -1;
+    private static final int ROOT = 0;
+
+    private final String[] signatures;
+    private final int[] asciiClasses;
+    private final char[] extraChars;
+    private final int[] extraClasses;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[] matches;
+
+    private SignatureScanner(String[] signatures, int[] asciiClasses, char[] extraChars, int[] extraClasses,
+            int alphabetSize, int[] transitions, int[] matches) {
+        this.signatures = signatures;
+        this.asciiClasses = asciiClasses;
+        this.extraChars = extraChars;
+        this.extraClasses = extraClasses;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.matches = matches;
+    }
+
+    public static SignatureScanner compile(Collection<String> signatures) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String signature : signatures) {
+            if (signature != null && !signature.isBlank()) {
+                unique.add(signature.toLowerCase(Locale.ROOT));
+            }
+        }
+        String[] patterns = unique.toArray(new String[0]);
+
+        // alphabet: class 0 is every character that appears in no signature
+        int[] classOfLower = new int[Character.MAX_VALUE + 1];
+        int alphabetSize = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (classOfLower[c] == 0) {
+                    classOfLower[c] = alphabetSize++;
+                }
+            }
+        }
+        int[] asciiClasses = new int[128];
+        List<Character> extra = new ArrayList<>();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int cls = classOfLower[Character.toLowerCase((char) c)];
+            if (cls != 0) {
+                if (c < 128) {
+                    asciiClasses[c] = cls;
+                } else {
+                    extra.add((char) c);
+                }
+            }
+        }
+        char[] extraChars = new char[extra.size()];
+        int[] extraClasses = new int[extra.size()];
+        for (int i = 0; i < extraChars.length; i++) {
+            extraChars[i] = extra.get(i);
+            extraClasses[i] = classOfLower[Character.toLowerCase(extraChars[i])];
+        }
+
+        // trie
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int[] goTo = new int[maxStates * alphabetSize];
+        Arrays.fill(goTo, -1);
+        int[] matches = new int[maxStates];
+        Arrays.fill(matches, NO_MATCH);
+        int states = 1;
+        for (int p = 0; p < patterns.length; p++) {
+            int state = ROOT;
+            for (int i = 0; i < patterns[p].length(); i++) {
+                int index = state * alphabetSize + classOfLower[patterns[p].charAt(i)];
+                if (goTo[index] < 0) {
+                    goTo[index] = states++;
+                }
+                state = goTo[index];
+            }
+            if (matches[state] == NO_MATCH) {
+                matches[state] = p;
+            }
+        }
+
+        // failure links folded into a complete transition table, breadth first
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++) {
+            int next = goTo[c];
+            if (next > 0) {
+                fail[next] = ROOT;
+                queue.add(next);
+            } else {
+                goTo[c] = ROOT;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (matches[state] == NO_MATCH) {
+                matches[state] = matches[fail[state]];
+            }
+            for (int c = 0; c < alphabetSize; c++) {
+                int index = state * alphabetSize + c;
+                int next = goTo[index];
+                int fallback = goTo[fail[state] * alphabetSize + c];
+                if (next >= 0) {
+                    fail[next] = fallback;
+                    queue.add(next);
+                } else {
+                    goTo[index] = fallback;
+                }
+            }
+        }
+
+        return new SignatureScanner(patterns, asciiClasses, extraChars, extraClasses, alphabetSize,
+                Arrays.copyOf(goTo, states * alphabetSize), Arrays.copyOf(matches, states));
+    }
+
+    /**
+     * State to start scanning from.
+     */
+    public int start() {
+        return ROOT;
+    }
+
+    /**
+     * Feeds one character to the automaton.
+     */
+    public int advance(int state, char c) {
+        return transitions[state * alphabetSize + classOf(c)];
+    }
+
+    /**
+     * Index of a signature ending at {@code state}, or {@link #NO_MATCH}.
+     */
+    public int matchAt(int state) {
+        return matches[state];
+    }
+
+    /**
+     * Index of the first signature found in {@code text}, or {@link #NO_MATCH}.
+     */
+    public int find(CharSequence text) {
+        return find(text, text.length());
+    }
+
+    /**
+     * Like {@link #find(CharSequence)} but inspects at most the first {@code maxLength} characters.
+     */
+    public int find(CharSequence text, int maxLength) {
+        int state = ROOT;
+        for (int i = 0, length = Math.min(text.length(), maxLength); i < length; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+            if (matches[state] != NO_MATCH) {
+                return matches[state];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    public String signature(int index) {
+        return signatures[index];
+    }
+
+    public int size() {
+        return signatures.length;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        if (extraChars.length == 0) {
+            return 0;
+        }
+        int i = Arrays.binarySearch(extraChars, c);
+        return i >= 0 ? extraClasses[i] : 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.berkdagli.sowa.security.inspection;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.security.suspicious")
+public class SuspiciousRequestProperties {
+
+    // Basic checks for common attack vectors (matched case-insensitively)
+    private List<String> signatures = new ArrayList<>(List.of(
+            "<script>",
+            "union select",
+            "drop table",
+            "exec("));
+
+    // optional resource with one extra signature per line, '#' starts a comment
+    private String signaturesFile;
+
+    // EAGER parses and inspects all parameters up front. STREAMING (opt-in) inspects input as downstream
+    // code reads it, and once a request has been handled without an error status, the query parameters it
+    // left unread; a form body nothing read is never parsed. Reports for unread input come after the
+    // response.
+    private Mode mode = Mode.EAGER;
+
+    // characters inspected per request, the rest is passed through unchecked
+    private long maxInspectedLength = 1024 * 1024;
+
+    public enum Mode {
+        EAGER,
+        STREAMING
+    }
+}
@@ -0,0 +1,26 @@
+package com.berkdagli.sowa.security.jwt;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.security.jwt")
+public class JwtProperties {
+
+    // base64 HMAC-SHA key, at least 256 bits; must be the same on every instance. Blank generates a
+    // random key at startup, which invalidates all tokens on restart
+    private String secret = "";
+
+    private String issuer = "sowa";
+
+    // access tokens are verified without a database lookup, so role changes apply only after they expire
+    private Duration accessTokenTtl = Duration.ofMinutes(15);
+
+    // refresh tokens re-read the user, picking up role changes and deleted accounts
+    private Duration refreshTokenTtl = Duration.ofDays(7);
+
+    // tolerated clock difference between instances
+    private Duration clockSkew = Duration.ofSeconds(30);
+}
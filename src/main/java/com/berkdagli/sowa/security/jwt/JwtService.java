@@ -0,0 +1,121 @@
+package com.berkdagli.sowa.security.jwt;
+
+import com.berkdagli.sowa.dto.UserAccount;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Issues and verifies the HMAC-signed tokens of the /api tier. The key and the parser are built once;
+ * verifying an access token is a signature check plus claim reads, with no session or database access.
+ */
+@Service
+public class JwtService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
+
+    static final String CLAIM_TYPE = "typ";
+    static final String CLAIM_ROLE = "role";
+    static final String TYPE_ACCESS = "access";
+    static final String TYPE_REFRESH = "refresh";
+
+    private final JwtProperties properties;
+    private final Clock clock;
+    private final SecretKey key;
+    private final JwtParser parser;
+
+    @Autowired
+    public JwtService(JwtProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    JwtService(JwtProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.key = signingKey(properties.getSecret());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .requireIssuer(properties.getIssuer())
+                .setAllowedClockSkewSeconds(properties.getClockSkew().toSeconds())
+                .setClock(() -> Date.from(clock.instant()))
+                .build();
+    }
+
+    public TokenPair issue(UserAccount user) {
+        Instant now = clock.instant();
+        String access = token(user, TYPE_ACCESS, now, now.plus(properties.getAccessTokenTtl()));
+        String refresh = token(user, TYPE_REFRESH, now, now.plus(properties.getRefreshTokenTtl()));
+        return new TokenPair(access, refresh, properties.getAccessTokenTtl().toSeconds());
+    }
+
+    // Authentication for a valid access token; throws BadCredentialsException for anything else
+    public UsernamePasswordAuthenticationToken authenticate(String accessToken) {
+        Claims claims = verify(accessToken, TYPE_ACCESS);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (role == null) {
+            throw new BadCredentialsException("Token has no role");
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(claims.getSubject(), null,
+                List.of(new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role)));
+    }
+
+    // Email of the user a valid refresh token was issued to
+    public String refreshTokenSubject(String refreshToken) {
+        return verify(refreshToken, TYPE_REFRESH).getSubject();
+    }
+
+    private Claims verify(String token, String expectedType) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid or expired token", e);
+        }
+        if (!expectedType.equals(claims.get(CLAIM_TYPE, String.class)) || claims.getSubject() == null) {
+            throw new BadCredentialsException("Invalid or expired token");
+        }
+        return claims;
+    }
+
+    private String token(UserAccount user, String type, Instant issuedAt, Instant expiresAt) {
+        return Jwts.builder()
+                .setIssuer(properties.getIssuer())
+                .setSubject(user.email())
+                .claim(CLAIM_TYPE, type)
+                .claim(CLAIM_ROLE, user.role())
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(expiresAt))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private static SecretKey signingKey(String secret) {
+        if (!StringUtils.hasText(secret)) {
+            logger.warn("sowa.security.jwt.secret is not set; using a random key, tokens will not survive a "
+                    + "restart or work across instances");
+            return Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        }
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+    }
+
+    public record TokenPair(String accessToken, String refreshToken, long expiresIn) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.berkdagli.sowa.security.password;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt cost factor for this machine: the highest strength whose hash still fits in the target
+ * time. Each step of strength doubles the work, so a single measurement at the lowest allowed strength is
+ * enough to estimate all the others.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+    private static final String SAMPLE = "calibration-sample-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(Duration target, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode(SAMPLE); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int strength = strengthFor(best, target.toNanos(), minStrength, maxStrength);
+        logger.info("BCrypt strength {} selected: {} ms at strength {}, target {} ms",
+                strength, best / 1_000_000, minStrength, target.toMillis());
+        return strength;
+    }
+
+    static int strengthFor(long nanosAtMin, long targetNanos, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        long estimate = nanosAtMin;
+        while (strength < maxStrength && estimate * 2 <= targetNanos) {
+            estimate *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
@@ -0,0 +1,58 @@
+package com.berkdagli.sowa.security.password;
+
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collection;
+
+/**
+ * Form login provider that upgrades outdated password hashes the way the API login does: best effort.
+ * <p>
+ * {@link DaoAuthenticationProvider} rehashes after the password has matched, and a saturated hashing pool
+ * would turn that rehash into a failed login. Here a rejected rehash keeps the stored hash and the user
+ * is signed in; the next login tries again.
+ */
+public class BestEffortUpgradeAuthenticationProvider extends DaoAuthenticationProvider {
+
+    public BestEffortUpgradeAuthenticationProvider(UserDetailsService userDetailsService,
+            PasswordEncoder passwordEncoder, UserDetailsPasswordService passwordService) {
+        super(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+        setUserDetailsPasswordService(passwordService);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+            UserDetails user) {
+        try {
+            return super.createSuccessAuthentication(principal, authentication, user);
+        } catch (PasswordHashingRejectedException e) {
+            logger.debug("Password hash upgrade for " + user.getUsername() + " postponed: " + e.getMessage());
+            // the password is only read to decide on the upgrade; the principal stays the loaded user
+            return super.createSuccessAuthentication(principal, authentication, new WithoutPassword(user));
+        }
+    }
+
+    private record WithoutPassword(UserDetails user) implements UserDetails {
+
+        @Override
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return user.getAuthorities();
+        }
+
+        @Override
+        public String getPassword() {
+            return null;
+        }
+
+        @Override
+        public String getUsername() {
+            return user.getUsername();
+        }
+    }
+}
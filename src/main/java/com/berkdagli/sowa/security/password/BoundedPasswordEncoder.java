@@ -0,0 +1,128 @@
+package com.berkdagli.sowa.security.password;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hashing on a small dedicated pool instead of on whichever request thread asked for it.
+ * <p>
+ * BCrypt is deliberately slow and purely CPU bound. Here at most {@code threads} hashes run at a time and
+ * at most {@code queue-capacity} more wait; any further {@link #encode}/{@link #matches} fails at once
+ * with {@link PasswordHashingRejectedException}. A burst of logins therefore ties up a bounded number of
+ * request threads and leaves the CPU to the rest of the application. Hash time, queue wait and
+ * rejections are recorded per operation.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Operation encode;
+    private final Operation matches;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingProperties properties,
+            MeterRegistry registry) {
+        this.delegate = delegate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.encode = new Operation("encode", registry);
+        this.matches = new Operation("matches", registry);
+        Gauge.builder("sowa.password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encode, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matches, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Only parses the stored hash, no need to queue it. An upgrade costs one more hash, so upgrades are
+    // put off while hashes are already waiting for a thread.
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword) && executor.getQueue().isEmpty();
+    }
+
+    private <T> T submit(Operation operation, Callable<T> hash) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                operation.queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return hash.call();
+                } finally {
+                    operation.hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            operation.rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing is at capacity, try again shortly");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new AuthenticationServiceException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class Operation {
+        final Timer hashTime;
+        final Timer queueWait;
+        final Counter rejected;
+
+        Operation(String name, MeterRegistry registry) {
+            this.hashTime = Timer.builder("sowa.password.hashing")
+                    .description("Time spent computing password hashes")
+                    .tag("operation", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.queueWait = Timer.builder("sowa.password.hashing.queue.wait")
+                    .description("Time password hashes waited for a hashing thread")
+                    .tag("operation", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.rejected = Counter.builder("sowa.password.hashing.rejected")
+                    .description("Password hashes refused because the hashing queue was full")
+                    .tag("operation", name)
+                    .register(registry);
+        }
+    }
+}
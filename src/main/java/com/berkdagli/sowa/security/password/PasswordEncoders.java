@@ -0,0 +1,61 @@
+package com.berkdagli.sowa.security.password;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Builds the application's password encoder.
+ * <p>
+ * New hashes are written as {@code {id}hash} with the configured algorithm and cost. Hashes of every
+ * registered algorithm keep verifying, including the unprefixed BCrypt hashes stored before prefixes
+ * were introduced. {@link PasswordEncoder#upgradeEncoding} reports hashes that use another algorithm, or
+ * weaker parameters than the current ones, so they can be rehashed after the next successful login.
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+    public static final String SCRYPT = "scrypt";
+
+    private PasswordEncoders() {
+    }
+
+    public static PasswordEncoder create(PasswordHashingProperties properties, MeterRegistry registry) {
+        return new BoundedPasswordEncoder(delegating(properties, bcryptStrength(properties)), properties, registry);
+    }
+
+    static DelegatingPasswordEncoder delegating(PasswordHashingProperties properties, int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT, bcrypt,
+                ARGON2, new Argon2PasswordEncoder(16, 32, 1, properties.getArgon2MemoryKib(),
+                        properties.getArgon2Iterations()),
+                SCRYPT, new SCryptPasswordEncoder(properties.getScryptCpuCost(), 8, 1, 32, 16));
+        if (!encoders.containsKey(properties.getAlgorithm())) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + properties.getAlgorithm()
+                    + ", expected one of " + encoders.keySet());
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(properties.getAlgorithm(), encoders);
+        // Hashes stored before ids were introduced are plain BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+
+    private static int bcryptStrength(PasswordHashingProperties properties) {
+        if (properties.getStrength() > 0) {
+            return properties.getStrength();
+        }
+        if (!BCRYPT.equals(properties.getAlgorithm())) {
+            // Only verifying old hashes, no need to spend startup time on calibration
+            return properties.getMinStrength();
+        }
+        return BCryptStrengthCalibrator.calibrate(properties.getTargetHashTime(), properties.getMinStrength(),
+                properties.getMaxStrength());
+    }
+}
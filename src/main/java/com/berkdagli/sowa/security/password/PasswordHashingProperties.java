@@ -0,0 +1,34 @@
+package com.berkdagli.sowa.security.password;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.security.password-hashing")
+public class PasswordHashingProperties {
+
+    // hashes computed in parallel; BCrypt is pure CPU, so more threads than cores only adds latency
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // hashes allowed to wait for a thread; beyond that logins and registrations fail fast with 503
+    private int queueCapacity = 16;
+
+    // algorithm for new hashes: bcrypt | argon2 | scrypt; hashes of the others keep verifying and are
+    // rehashed with this one after their next successful login
+    private String algorithm = "bcrypt";
+
+    // BCrypt cost factor; 0 calibrates it at startup to targetHashTime on the current hardware
+    private int strength = 0;
+    private Duration targetHashTime = Duration.ofMillis(250);
+    private int minStrength = 10;
+    private int maxStrength = 15;
+
+    // Argon2id parameters (memory in KiB); older hashes with lower values are rehashed on login
+    private int argon2MemoryKib = 16384;
+    private int argon2Iterations = 2;
+
+    // scrypt CPU/memory cost, a power of two
+    private int scryptCpuCost = 65536;
+}
@@ -0,0 +1,14 @@
+package com.berkdagli.sowa.security.password;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing executor is saturated. It is an authentication service failure, not a
+ * bad credential: the request should be answered with 503 and may be retried.
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
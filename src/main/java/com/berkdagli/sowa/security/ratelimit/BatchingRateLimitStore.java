@@ -0,0 +1,154 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps counters locally and reconciles them with a slower shared store in batches.
+ * <p>
+ * Requests only touch the local counter: the value they see is the cluster total from
+ * the last sync plus what this node has counted since, kept in one atomic value so that a
+ * sync running alongside them never loses or double counts an increment. The first access to a key and
+ * window reads the delegate once, so a node also sees traffic it has not taken part in
+ * (the previous window of a client new to it, for one). Every {@code syncInterval} the
+ * pending deltas of all tracked counters are pushed to the delegate in one
+ * {@link RateLimitStore#addAndGetAll} call, which also refreshes the totals contributed
+ * by other nodes. A client can therefore overshoot its limit by roughly what the other
+ * nodes admit during one interval; in exchange only the first request per counter waits on
+ * the store.
+ */
+public class BatchingRateLimitStore implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingRateLimitStore.class);
+
+    // counters not touched for this many syncs (and with nothing pending) are forgotten
+    private static final int IDLE_SYNCS = 2;
+    // pending value of a forgotten counter, so a request still holding it knows to count elsewhere
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final RateLimitStore delegate;
+    private final ConcurrentHashMap<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer;
+    private volatile long generation;
+
+    public BatchingRateLimitStore(RateLimitStore delegate, Duration syncInterval) {
+        this.delegate = delegate;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = syncInterval.toMillis();
+        this.syncer.scheduleWithFixedDelay(this::syncSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long addAndGet(String key, long window, long windowMillis, long delta) {
+        while (true) {
+            Counter counter = counter(key, window, windowMillis);
+            if (counter.pending.addAndGet(delta) > RETIRED / 2) {
+                return counter.value.addAndGet(delta);
+            }
+            // forgotten by a sync in the meantime, count on its replacement
+        }
+    }
+
+    @Override
+    public long get(String key, long window, long windowMillis) {
+        return counter(key, window, windowMillis).value.get();
+    }
+
+    // Tracked from the first read on, so every sync refreshes the other nodes' share of it
+    private Counter counter(String key, long window, long windowMillis) {
+        Counter counter = counters.computeIfAbsent(new CounterKey(key, window, windowMillis), k -> {
+            Counter created = new Counter();
+            try {
+                created.known = delegate.get(k.key(), k.window(), k.windowMillis());
+                created.value.set(created.known);
+            } catch (RuntimeException e) {
+                logger.warn("Rate limit store read failed, counting locally until the next sync: {}",
+                        e.getMessage());
+            }
+            return created;
+        });
+        counter.lastUsed = generation;
+        return counter;
+    }
+
+    /**
+     * Pushes pending deltas to the delegate and pulls fresh totals. Each counter's pending delta
+     * is swapped out before it is pushed; the fresh total then replaces the last known one plus
+     * that snapshot, and whatever was counted since the swap stays on top of it.
+     */
+    void sync() {
+        long current = generation;
+        Map<CounterKey, Long> batch = new HashMap<>(counters.size() * 2);
+        counters.forEach((key, counter) -> {
+            long delta = counter.pending.getAndSet(0);
+            if (delta == 0 && current - counter.lastUsed >= IDLE_SYNCS
+                    && counter.pending.compareAndSet(0, RETIRED)) {
+                counters.remove(key, counter);
+            } else {
+                batch.put(key, delta);
+            }
+        });
+        generation = current + 1;
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<CounterKey, Long> totals;
+        try {
+            totals = delegate.addAndGetAll(batch);
+        } catch (RuntimeException e) {
+            // give the deltas back so they are retried with the next batch
+            batch.forEach((key, delta) -> {
+                Counter counter = counters.get(key);
+                if (counter != null) {
+                    counter.pending.addAndGet(delta);
+                }
+            });
+            throw e;
+        }
+        totals.forEach((key, total) -> {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.value.addAndGet(total - counter.known - batch.get(key));
+                counter.known = total;
+            }
+        });
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            logger.warn("Rate limit store sync failed, retrying with the next batch: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        syncer.shutdownNow();
+        delegate.close();
+    }
+
+    private static final class Counter {
+        // what requests see: known plus everything counted here that has not come back from a sync
+        final AtomicLong value = new AtomicLong();
+        // counted here and not yet pushed to the delegate
+        final AtomicLong pending = new AtomicLong();
+        // the delegate's total as of the last sync; only the syncing thread writes it
+        volatile long known;
+        volatile long lastUsed;
+    }
+}
@@ -0,0 +1,32 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local store standing in for a shared remote one (e.g. Redis) in tests and
+ * single-node runs of the cluster mode. Only the two most recent windows of a key
+ * are needed, so whenever a write starts a later window than any seen before, counters
+ * that expired before that window's start are dropped, whatever their window length.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final ConcurrentHashMap<CounterKey, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicLong latestWindowStart = new AtomicLong(Long.MIN_VALUE);
+
+    @Override
+    public long addAndGet(String key, long window, long windowMillis, long delta) {
+        long windowStart = window * windowMillis;
+        if (windowStart > latestWindowStart.get() && latestWindowStart.getAndSet(windowStart) < windowStart) {
+            counters.keySet().removeIf(k -> k.expiresAt() <= windowStart);
+        }
+        return counters.computeIfAbsent(new CounterKey(key, window, windowMillis), k -> new AtomicLong())
+                .addAndGet(delta);
+    }
+
+    @Override
+    public long get(String key, long window, long windowMillis) {
+        AtomicLong counter = counters.get(new CounterKey(key, window, windowMillis));
+        return counter != null ? counter.get() : 0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Counters shared by every JVM on the host through a memory-mapped file.
+ * <p>
+ * The file is a fixed-size open-addressing hash table. Each slot holds a 64-bit key
+ * hash, the epoch millis at which the slot expires, and two counter words, one for even
+ * and one for odd windows, each packing the low 32 bits of the window index with a 32-bit
+ * count. Every update is a CAS on the mapped memory, which the hardware makes atomic
+ * across processes, so no file locks are taken after the table has been initialised.
+ * <p>
+ * The table never grows. A slot whose expiry has passed can be taken over by another key.
+ * The expiry is absolute time rather than a window index, so keys of policies with
+ * different window lengths can judge each other's slots. If no slot is found within
+ * {@value #MAX_PROBES} probes the update is dropped and the request is admitted (fail-open).
+ */
+public class MappedFileRateLimitStore implements RateLimitStore {
+
+    private static final long MAGIC = 0x534F57415F524C32L; // "SOWA_RL2"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 32;
+    private static final int EXPIRY = 8;
+    private static final int MAX_PROBES = 16;
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+
+    public MappedFileRateLimitStore(Path file, int slots) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try (FileLock ignored = channel.lock()) {
+                int existing = readExistingSlots();
+                if (existing <= 0) {
+                    // a new file, or one with an older layout that cannot be read as slots
+                    channel.truncate(0);
+                }
+                this.slots = existing > 0 ? existing : slots;
+                long size = HEADER_BYTES + (long) this.slots * SLOT_BYTES;
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (existing <= 0) {
+                    buffer.order(ByteOrder.nativeOrder()).putLong(8, this.slots).putLong(0, MAGIC);
+                    buffer.force();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map rate limit store " + file, e);
+        }
+    }
+
+    private int readExistingSlots() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return -1;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        header.order(ByteOrder.nativeOrder());
+        return header.getLong(0) == MAGIC ? (int) header.getLong(8) : -1;
+    }
+
+    @Override
+    public long addAndGet(String key, long window, long windowMillis, long delta) {
+        int slot = findSlot(hash(key), window * windowMillis, true);
+        if (slot < 0) {
+            return delta;
+        }
+        extendExpiry(slotOffset(slot) + EXPIRY, (window + 2) * windowMillis);
+        int offset = counterOffset(slot, window);
+        long tag = window & COUNT_MASK;
+        while (true) {
+            long state = (long) LONGS.getVolatile(buffer, offset);
+            long count = (state >>> 32) == tag ? state & COUNT_MASK : 0;
+            long updated = Math.max(0, Math.min(COUNT_MASK, count + delta));
+            if (LONGS.compareAndSet(buffer, offset, state, (tag << 32) | updated)) {
+                return updated;
+            }
+        }
+    }
+
+    @Override
+    public long get(String key, long window, long windowMillis) {
+        int slot = findSlot(hash(key), window * windowMillis, false);
+        if (slot < 0) {
+            return 0;
+        }
+        long state = (long) LONGS.getVolatile(buffer, counterOffset(slot, window));
+        return (state >>> 32) == (window & COUNT_MASK) ? state & COUNT_MASK : 0;
+    }
+
+    // now is the start of the caller's window: never later than the clock, so a slot is only
+    // taken over once it has expired for every policy
+    private int findSlot(long hash, long now, boolean claim) {
+        int start = (int) Long.remainderUnsigned(hash, slots);
+        int reusable = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (start + probe) % slots;
+            int offset = slotOffset(slot);
+            long owner = (long) LONGS.getVolatile(buffer, offset);
+            if (owner == hash) {
+                return slot;
+            }
+            if (owner == 0) {
+                if (!claim) {
+                    return -1;
+                }
+                if (LONGS.compareAndSet(buffer, offset, 0L, hash)) {
+                    return slot;
+                }
+                if ((long) LONGS.getVolatile(buffer, offset) == hash) {
+                    return slot;
+                }
+            } else if (claim && reusable < 0 && isStale(offset, now)) {
+                reusable = slot;
+            }
+        }
+        if (reusable >= 0) {
+            int offset = slotOffset(reusable);
+            long owner = (long) LONGS.getVolatile(buffer, offset);
+            long even = (long) LONGS.getVolatile(buffer, offset + 16);
+            long odd = (long) LONGS.getVolatile(buffer, offset + 24);
+            if (isStale(offset, now) && LONGS.compareAndSet(buffer, offset, owner, hash)) {
+                // the previous owner's counts may carry window tags the new key also uses; unless
+                // the new owner has counted in the meantime, they are cleared
+                LONGS.compareAndSet(buffer, offset + 16, even, 0L);
+                LONGS.compareAndSet(buffer, offset + 24, odd, 0L);
+                return reusable;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isStale(int slotOffset, long now) {
+        return (long) LONGS.getVolatile(buffer, slotOffset + EXPIRY) <= now;
+    }
+
+    private void extendExpiry(int offset, long expiresAt) {
+        long current = (long) LONGS.getVolatile(buffer, offset);
+        while (current < expiresAt && !LONGS.compareAndSet(buffer, offset, current, expiresAt)) {
+            current = (long) LONGS.getVolatile(buffer, offset);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int counterOffset(int slot, long window) {
+        return slotOffset(slot) + ((window & 1) == 0 ? 16 : 24);
+    }
+
+    // FNV-1a followed by a murmur3 finalizer; 0 marks an empty slot and is never returned
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Base for limiters that keep the whole state of a key in one {@code long}.
+ * <p>
+ * Subclasses only define how a state is created, advanced and recognised as idle;
+ * this class owns the key map, the memory cap and the background eviction. When
+ * {@code maxBuckets} keys are tracked, unknown keys share a single overflow state
+ * until the next sweep frees room, which bounds memory under address scans.
+ */
+abstract class PackedStateRateLimiter implements RateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> states = new ConcurrentHashMap<>();
+    private final AtomicLong overflowState;
+    private final int maxBuckets;
+    private final ScheduledExecutorService evictor;
+    protected final LongSupplier clock;
+
+    protected PackedStateRateLimiter(int maxBuckets, Duration evictionInterval, LongSupplier clock) {
+        this.maxBuckets = maxBuckets;
+        this.clock = clock;
+        this.overflowState = new AtomicLong();
+
+        if (evictionInterval != null && !evictionInterval.isZero() && !evictionInterval.isNegative()) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "rate-limit-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = evictionInterval.toMillis();
+            this.evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictor = null;
+        }
+    }
+
+    /**
+     * Must be called by subclass constructors once their fields are assigned.
+     */
+    protected final void initOverflow() {
+        overflowState.set(initialState(clock.getAsLong()));
+    }
+
+    /**
+     * State of a key seen for the first time at {@code now}.
+     */
+    protected abstract long initialState(long now);
+
+    /**
+     * Tries to admit one request against {@code state}, retrying its own CAS as needed.
+     */
+    protected abstract boolean tryAcquire(AtomicLong state, long now);
+
+    /**
+     * Whether {@code state} would make the same decisions as {@link #initialState(long)}.
+     */
+    protected abstract boolean isIdle(long state, long now);
+
+    @Override
+    public boolean tryAcquire(String key) {
+        long now = clock.getAsLong();
+        return tryAcquire(stateFor(key, now), now);
+    }
+
+    @Override
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        states.values().removeIf(state -> isIdle(state.get(), now));
+    }
+
+    @Override
+    public int size() {
+        return states.size();
+    }
+
+    @Override
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    private AtomicLong stateFor(String key, long now) {
+        AtomicLong state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+        if (states.size() >= maxBuckets) {
+            return overflowState;
+        }
+        return states.computeIfAbsent(key, k -> new AtomicLong(initialState(now)));
+    }
+
+    static LongSupplier monotonicMillis() {
+        long origin = System.nanoTime();
+        return () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+}
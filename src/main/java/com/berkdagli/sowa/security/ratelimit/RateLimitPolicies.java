@@ -0,0 +1,163 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ordered set of {@link RateLimitPolicy policies} built from {@link RateLimitProperties}.
+ * <p>
+ * Requests are matched against the configured policies in order; the first match wins and
+ * anything unmatched falls back to the default per-IP token bucket. Excluded paths never
+ * reach a limiter at all. When a cluster store is configured every policy counts in that
+ * store instead of in this JVM, as a sliding-window counter keyed by the policy name, so
+ * names are then required and must be unique.
+ */
+public class RateLimitPolicies implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitPolicies.class);
+    private static final String DEFAULT_POLICY = "default";
+
+    private final List<PathPattern> excludedPaths;
+    private final List<RateLimitPolicy> policies;
+    private final RateLimitPolicy defaultPolicy;
+    private final RateLimitStore store;
+
+    private RateLimitPolicies(List<PathPattern> excludedPaths, List<RateLimitPolicy> policies,
+            RateLimitPolicy defaultPolicy, RateLimitStore store) {
+        this.excludedPaths = excludedPaths;
+        this.policies = policies;
+        this.defaultPolicy = defaultPolicy;
+        this.store = store;
+    }
+
+    public static RateLimitPolicies from(RateLimitProperties properties) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        RateLimitStore store = createStore(properties.getCluster());
+
+        List<PathPattern> excluded = properties.getExcludedPaths().stream()
+                .map(parser::parse)
+                .toList();
+
+        List<RateLimitPolicy> policies = new ArrayList<>();
+        Set<String> names = new HashSet<>(Set.of(DEFAULT_POLICY));
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            if (policy.getPatterns().isEmpty()) {
+                throw new IllegalArgumentException("Rate limit policy '" + policy.getName() + "' has no patterns");
+            }
+            if (store != null) {
+                // the name is the policy's key namespace in the shared store
+                if (policy.getName() == null || policy.getName().isBlank()) {
+                    throw new IllegalArgumentException("Rate limit policies need a name when a cluster store is "
+                            + "configured, patterns " + policy.getPatterns());
+                }
+                if (!names.add(policy.getName())) {
+                    throw new IllegalArgumentException("Rate limit policy name '" + policy.getName()
+                            + "' is used twice (or is reserved), policies would share their counters");
+                }
+            }
+            Set<String> methods = policy.getMethods().stream()
+                    .map(m -> m.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            policies.add(new RateLimitPolicy(
+                    policy.getName(),
+                    policy.getPatterns().stream().map(parser::parse).toList(),
+                    methods,
+                    policy.getKey(),
+                    createLimiter(policy.getName(), policy.getAlgorithm(), policy.getLimit(), policy.getPeriod(),
+                            properties, store)));
+        }
+
+        RateLimitPolicy defaultPolicy = new RateLimitPolicy(DEFAULT_POLICY, List.of(), Set.of(),
+                RateLimitProperties.KeyType.IP,
+                createLimiter(DEFAULT_POLICY, RateLimitProperties.Algorithm.TOKEN_BUCKET, properties.getCapacity(),
+                        properties.getRefillPeriod(), properties, store));
+
+        return new RateLimitPolicies(excluded, List.copyOf(policies), defaultPolicy, store);
+    }
+
+    private static RateLimitStore createStore(RateLimitProperties.Cluster cluster) {
+        RateLimitStore store = switch (cluster.getStore()) {
+            case NONE -> null;
+            case MAPPED_FILE -> new MappedFileRateLimitStore(Path.of(cluster.getFile()), cluster.getSlots());
+            case IN_MEMORY -> new InMemoryRateLimitStore();
+        };
+        if (store != null && cluster.isBatched()) {
+            store = new BatchingRateLimitStore(store, cluster.getSyncInterval());
+        }
+        return store;
+    }
+
+    private static RateLimiter createLimiter(String name, RateLimitProperties.Algorithm algorithm, long limit,
+            Duration period, RateLimitProperties properties, RateLimitStore store) {
+        if (store != null) {
+            // shared counters only support the sliding-window counter, whatever the policy asks for
+            if (algorithm != RateLimitProperties.Algorithm.SLIDING_WINDOW_COUNTER) {
+                logger.warn("Rate limit policy '{}' asks for {}, the cluster store limits it with a sliding-window "
+                        + "counter of {} per {}", name, algorithm, limit, period);
+            }
+            return new StoreBackedRateLimiter(store, name, limit, period, System::currentTimeMillis);
+        }
+        return switch (algorithm) {
+            case TOKEN_BUCKET -> new TokenBucketRateLimiter(limit, period, properties.getIdleTimeout(),
+                    properties.getMaxBuckets(), properties.getEvictionInterval(),
+                    PackedStateRateLimiter.monotonicMillis());
+            case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterRateLimiter(limit, period,
+                    properties.getIdleTimeout(), properties.getMaxBuckets(), properties.getEvictionInterval(),
+                    PackedStateRateLimiter.monotonicMillis());
+        };
+    }
+
+    public boolean isExcluded(HttpServletRequest request) {
+        if (excludedPaths.isEmpty()) {
+            return false;
+        }
+        PathContainer path = pathOf(request);
+        for (PathPattern pattern : excludedPaths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public RateLimitPolicy resolve(HttpServletRequest request) {
+        if (policies.isEmpty()) {
+            return defaultPolicy;
+        }
+        PathContainer path = pathOf(request);
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(request, path)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    private static PathContainer pathOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        return PathContainer.parsePath(uri.substring(Math.min(contextPath.length(), uri.length())));
+    }
+
+    @Override
+    public void close() {
+        policies.forEach(RateLimitPolicy::close);
+        defaultPolicy.close();
+        if (store != null) {
+            store.close();
+        }
+    }
+}
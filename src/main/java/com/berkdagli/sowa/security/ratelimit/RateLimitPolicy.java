@@ -0,0 +1,67 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A limiter together with the requests it applies to and how clients are identified.
+ */
+public class RateLimitPolicy implements AutoCloseable {
+
+    private final String name;
+    private final List<PathPattern> patterns;
+    private final Set<String> methods;
+    private final RateLimitProperties.KeyType keyType;
+    private final RateLimiter limiter;
+
+    RateLimitPolicy(String name, List<PathPattern> patterns, Set<String> methods,
+            RateLimitProperties.KeyType keyType, RateLimiter limiter) {
+        this.name = name;
+        this.patterns = patterns;
+        this.methods = methods;
+        this.keyType = keyType;
+        this.limiter = limiter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    boolean matches(HttpServletRequest request, PathContainer path) {
+        if (!methods.isEmpty() && !methods.contains(request.getMethod())) {
+            return false;
+        }
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean tryAcquire(HttpServletRequest request) {
+        return limiter.tryAcquire(resolveKey(request));
+    }
+
+    private String resolveKey(HttpServletRequest request) {
+        if (keyType == RateLimitProperties.KeyType.PRINCIPAL) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                return "user:" + auth.getName();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    @Override
+    public void close() {
+        limiter.close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.rate-limit")
+public class RateLimitProperties {
+
+    // default policy for requests no other policy matches: 100 requests per minute per IP
+    private long capacity = 100;
+    private Duration refillPeriod = Duration.ofMinutes(1);
+
+    // paths that bypass the limiter entirely (static assets)
+    private List<String> excludedPaths = new ArrayList<>();
+
+    // evaluated in order, first match wins
+    private List<Policy> policies = new ArrayList<>();
+
+    // buckets untouched for this long are dropped (never less than the policy period)
+    private Duration idleTimeout = Duration.ofMinutes(5);
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    // hard cap on tracked clients per policy; new clients beyond it share one overflow bucket
+    private int maxBuckets = 100_000;
+
+    private Cluster cluster = new Cluster();
+
+    @Data
+    public static class Cluster {
+        // NONE keeps all counters in this JVM
+        private StoreType store = StoreType.NONE;
+        // reconcile with the store in the background instead of on every request
+        private boolean batched = false;
+        private Duration syncInterval = Duration.ofMillis(200);
+        // MAPPED_FILE only: shared by every instance on the host
+        private String file = "data/rate-limit.shm";
+        private int slots = 65_536;
+    }
+
+    public enum StoreType {
+        NONE,
+        MAPPED_FILE,
+        IN_MEMORY
+    }
+
+    @Data
+    public static class Policy {
+        private String name;
+        private List<String> patterns = new ArrayList<>();
+        // empty means every method
+        private List<String> methods = new ArrayList<>();
+        private KeyType key = KeyType.IP;
+        private Algorithm algorithm = Algorithm.TOKEN_BUCKET;
+        private long limit = 100;
+        private Duration period = Duration.ofMinutes(1);
+    }
+
+    public enum KeyType {
+        IP,
+        // authenticated user name, falling back to the IP for anonymous requests
+        PRINCIPAL
+    }
+
+    public enum Algorithm {
+        TOKEN_BUCKET,
+        SLIDING_WINDOW_COUNTER
+    }
+}
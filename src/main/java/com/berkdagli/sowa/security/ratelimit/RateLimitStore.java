@@ -0,0 +1,53 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Backing store for cluster-wide rate limiting.
+ * <p>
+ * A store keeps one counter per key and fixed time window. Windows are plain indexes
+ * ({@code epochMillis / windowMillis}) so every node sharing the store agrees on them.
+ * Policies with different window lengths share one store, so every call also passes the
+ * length: an index alone does not say when its counter may be dropped.
+ * Implementations may be approximate (lossy under contention or when full) but must
+ * never block for long: they sit on the request path.
+ */
+public interface RateLimitStore extends AutoCloseable {
+
+    /**
+     * Adds {@code delta} to the counter of {@code key} in {@code window}.
+     *
+     * @return the counter value after the update, as far as this store knows it
+     */
+    long addAndGet(String key, long window, long windowMillis, long delta);
+
+    /**
+     * Current counter value of {@code key} in {@code window}, or 0 if unknown.
+     */
+    long get(String key, long window, long windowMillis);
+
+    /**
+     * Applies several updates in one round trip. A delta of 0 only reads the counter.
+     */
+    default Map<CounterKey, Long> addAndGetAll(Map<CounterKey, Long> deltas) {
+        Map<CounterKey, Long> totals = new HashMap<>(deltas.size() * 2);
+        deltas.forEach((key, delta) -> totals.put(key, addAndGet(key.key(), key.window(), key.windowMillis(), delta)));
+        return totals;
+    }
+
+    @Override
+    default void close() {
+    }
+
+    record CounterKey(String key, long window, long windowMillis) {
+
+        /**
+         * Epoch millis from which the counter is no longer needed: it is read as the previous
+         * window until the end of the window after it.
+         */
+        long expiresAt() {
+            return (window + 2) * windowMillis;
+        }
+    }
+}
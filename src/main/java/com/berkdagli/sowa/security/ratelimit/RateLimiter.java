@@ -0,0 +1,27 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+/**
+ * Per-key admission decision used by {@link com.berkdagli.sowa.security.RateLimitFilter}.
+ */
+public interface RateLimiter extends AutoCloseable {
+
+    /**
+     * Records one request for {@code key}.
+     *
+     * @return {@code true} if the request is within the limit
+     */
+    boolean tryAcquire(String key);
+
+    /**
+     * Drops state for keys that have been idle long enough to be indistinguishable from new ones.
+     */
+    void evictIdle();
+
+    /**
+     * Number of keys currently tracked.
+     */
+    int size();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,91 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free sliding-window counter.
+ * <p>
+ * Keeps the request counts of the current and previous fixed window and weights the
+ * previous one by how much of it still overlaps the sliding window. Unlike a token
+ * bucket it never lets a full burst through right after a quiet period, which is what
+ * we want for credential endpoints.
+ * <p>
+ * The state packs the window index modulo 2^{@value #WINDOW_BITS} (high bits), the
+ * previous count and the current count ({@value #COUNT_BITS} bits each). A state whose
+ * window is two or more windows old counts as empty and can be evicted.
+ */
+public class SlidingWindowCounterRateLimiter extends PackedStateRateLimiter {
+
+    static final int COUNT_BITS = 20;
+    static final long MAX_LIMIT = (1L << COUNT_BITS) - 1;
+    private static final int WINDOW_BITS = Long.SIZE - 2 * COUNT_BITS;
+    private static final long COUNT_MASK = MAX_LIMIT;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+    private final long limit;
+    private final long windowMillis;
+    private final long idleMillis;
+
+    SlidingWindowCounterRateLimiter(long limit, Duration window, Duration idleTimeout, int maxBuckets,
+            Duration evictionInterval, LongSupplier clock) {
+        super(maxBuckets, evictionInterval, clock);
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (window.toMillis() <= 0) {
+            throw new IllegalArgumentException("window must be at least 1ms");
+        }
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.idleMillis = Math.max(idleTimeout.toMillis(), 2 * windowMillis);
+        initOverflow();
+    }
+
+    @Override
+    protected long initialState(long now) {
+        return pack(now / windowMillis, 0, 0);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong counter, long now) {
+        long window = now / windowMillis;
+        long sinceWindowStart = now - window * windowMillis;
+
+        while (true) {
+            long state = counter.get();
+            long age = (window - (state >>> (2 * COUNT_BITS))) & WINDOW_MASK;
+            long previous;
+            long current;
+            if (age == 0) {
+                previous = (state >>> COUNT_BITS) & COUNT_MASK;
+                current = state & COUNT_MASK;
+            } else if (age == 1) {
+                previous = state & COUNT_MASK;
+                current = 0;
+            } else {
+                previous = 0;
+                current = 0;
+            }
+
+            // previous * overlap + current < limit, scaled by the window length to stay in integers
+            boolean allowed = previous * (windowMillis - sinceWindowStart) + current * windowMillis
+                    < limit * windowMillis;
+            long next = pack(window, previous, allowed ? current + 1 : current);
+            if (next == state || counter.compareAndSet(state, next)) {
+                return allowed;
+            }
+        }
+    }
+
+    @Override
+    protected boolean isIdle(long state, long now) {
+        long age = (now / windowMillis - (state >>> (2 * COUNT_BITS))) & WINDOW_MASK;
+        return age >= 2 && age * windowMillis >= idleMillis;
+    }
+
+    private static long pack(long window, long previous, long current) {
+        return ((window & WINDOW_MASK) << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | current;
+    }
+}
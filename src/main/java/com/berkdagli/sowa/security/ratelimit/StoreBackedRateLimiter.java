@@ -0,0 +1,68 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window counter whose counts live in a {@link RateLimitStore} shared by all nodes.
+ * <p>
+ * Windows are derived from wall-clock time so that every node maps a request to the same
+ * window. Keys are namespaced by policy so that several policies can share one store.
+ * A request reserves its slot before it is checked, so concurrent requests on any node never
+ * all pass on the same stale count; a denied request gives its slot back. Expiry of old windows
+ * is left to the store, so {@link #evictIdle()} does nothing here.
+ */
+public class StoreBackedRateLimiter implements RateLimiter {
+
+    private final RateLimitStore store;
+    private final String namespace;
+    private final long limit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    StoreBackedRateLimiter(RateLimitStore store, String namespace, long limit, Duration window, LongSupplier clock) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (window.toMillis() <= 0) {
+            throw new IllegalArgumentException("window must be at least 1ms");
+        }
+        this.store = store;
+        this.namespace = namespace + ':';
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean tryAcquire(String key) {
+        long now = clock.getAsLong();
+        long window = now / windowMillis;
+        long sinceWindowStart = now - window * windowMillis;
+        String storeKey = namespace + key;
+
+        long previous = store.get(storeKey, window - 1, windowMillis);
+        // the count before this request, with this request already reserved
+        long current = store.addAndGet(storeKey, window, windowMillis, 1) - 1;
+        // same weighting as SlidingWindowCounterRateLimiter, scaled to stay in integers
+        if (previous * (windowMillis - sinceWindowStart) + current * windowMillis >= limit * windowMillis) {
+            store.addAndGet(storeKey, window, windowMillis, -1);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void evictIdle() {
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        // the store is shared between policies and closed by RateLimitPolicies
+    }
+}
@@ -0,0 +1,94 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket.
+ * <p>
+ * The state packs the remaining tokens (high {@value #TOKEN_BITS} bits) and the last
+ * refill time in milliseconds (low bits). A decision is one volatile read and, when the
+ * state changes, one CAS; nothing is allocated once the key is known.
+ * <p>
+ * A bucket whose refill stamp is older than the refill period is always full, so it is
+ * indistinguishable from a fresh one and can be evicted without changing any decision.
+ */
+public class TokenBucketRateLimiter extends PackedStateRateLimiter {
+
+    static final int TOKEN_BITS = 20;
+    static final long MAX_CAPACITY = (1L << TOKEN_BITS) - 1;
+    private static final int TIME_BITS = Long.SIZE - TOKEN_BITS;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final long capacity;
+    private final long refillPeriodMillis;
+    private final long idleMillis;
+
+    public TokenBucketRateLimiter(RateLimitProperties properties) {
+        this(properties.getCapacity(), properties.getRefillPeriod(), properties.getIdleTimeout(),
+                properties.getMaxBuckets(), properties.getEvictionInterval(), monotonicMillis());
+    }
+
+    TokenBucketRateLimiter(long capacity, Duration refillPeriod, Duration idleTimeout, int maxBuckets,
+            Duration evictionInterval, LongSupplier clock) {
+        super(maxBuckets, evictionInterval, clock);
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (refillPeriod.toMillis() <= 0) {
+            throw new IllegalArgumentException("refillPeriod must be at least 1ms");
+        }
+        this.capacity = capacity;
+        this.refillPeriodMillis = refillPeriod.toMillis();
+        this.idleMillis = Math.max(idleTimeout.toMillis(), refillPeriodMillis);
+        initOverflow();
+    }
+
+    @Override
+    protected long initialState(long now) {
+        return pack(capacity, now);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong bucket, long now) {
+        while (true) {
+            long state = bucket.get();
+            long tokens = state >>> TIME_BITS;
+            long stamp = state & TIME_MASK;
+
+            long elapsed = now - stamp;
+            if (elapsed > 0) {
+                if (tokens >= capacity) {
+                    // full bucket: just move the stamp forward so the idle sweep sees activity
+                    stamp = now;
+                } else {
+                    long refill = elapsed * capacity / refillPeriodMillis;
+                    if (tokens + refill >= capacity) {
+                        tokens = capacity;
+                        stamp = now;
+                    } else if (refill > 0) {
+                        tokens += refill;
+                        // only advance by the time actually converted into tokens, keeping the remainder
+                        stamp += refill * refillPeriodMillis / capacity;
+                    }
+                }
+            }
+
+            boolean allowed = tokens > 0;
+            long next = pack(allowed ? tokens - 1 : tokens, stamp);
+            if (next == state || bucket.compareAndSet(state, next)) {
+                return allowed;
+            }
+        }
+    }
+
+    @Override
+    protected boolean isIdle(long state, long now) {
+        return now - (state & TIME_MASK) >= idleMillis;
+    }
+
+    private static long pack(long tokens, long stamp) {
+        return (tokens << TIME_BITS) | (stamp & TIME_MASK);
+    }
+}
@@ -1,72 +1,237 @@
 package com.berkdagli.sowa.service;
 
+import com.berkdagli.sowa.dto.AdminNoteRow;
+import com.berkdagli.sowa.dto.NoteExportRow;
 import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.dto.NotePage;
+import com.berkdagli.sowa.dto.NoteSearchHit;
+import com.berkdagli.sowa.dto.NoteSearchPage;
+import com.berkdagli.sowa.dto.NoteSummary;
+import com.berkdagli.sowa.dto.NotesVersion;
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.model.Note;
 import com.berkdagli.sowa.model.User;
 import com.berkdagli.sowa.repository.NoteRepository;
 import com.berkdagli.sowa.repository.UserRepository;
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class NoteService {
 
+    public static final int PAGE_SIZE = 20;
+    public static final int ADMIN_PAGE_SIZE = 50;
+    // Longer queries are cut to this many terms before they reach FTS5
+    public static final int SEARCH_MAX_TERMS = 10;
+
     private final NoteRepository noteRepository;
     private final UserRepository userRepository;
+    private final SecurityEventPublisher securityEvents;
+    private final NoteWriteBatcher writes;
 
-    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(NoteService.class); // init logger
-
-    public NoteService(NoteRepository noteRepository, UserRepository userRepository) {
+    public NoteService(NoteRepository noteRepository, UserRepository userRepository,
+            SecurityEventPublisher securityEvents, NoteWriteBatcher writes) {
         this.noteRepository = noteRepository;
         this.userRepository = userRepository;
+        this.securityEvents = securityEvents;
+        this.writes = writes;
+    }
+
+    /**
+     * Returns one page of the user's notes, newest first. Pass {@code before} to page towards older
+     * notes, {@code after} to page back towards newer ones, or neither for the first page.
+     */
+    @Transactional(readOnly = true)
+    public NotePage findPageByUserEmail(String email, Long before, Long after) {
+        UserAccount user = getUserByEmail(email);
+        // One extra row tells us whether another page exists in the direction we are reading
+        Limit limit = Limit.of(PAGE_SIZE + 1);
+
+        if (after != null) {
+            List<NoteSummary> rows = new ArrayList<>(noteRepository.findSummariesAfter(user.id(), after, limit));
+            boolean hasNewer = rows.size() > PAGE_SIZE;
+            if (hasNewer) {
+                rows.remove(PAGE_SIZE);
+            }
+            if (rows.isEmpty()) {
+                // Everything newer was deleted in the meantime; fall back to the first page
+                return findPageByUserEmail(email, null, null);
+            }
+            Collections.reverse(rows);
+            return new NotePage(rows, hasNewer ? rows.get(0).getId() : null, rows.get(rows.size() - 1).getId());
+        }
+
+        List<NoteSummary> rows = new ArrayList<>(noteRepository.findSummariesBefore(user.id(),
+                before != null ? before : Long.MAX_VALUE, limit));
+        boolean hasOlder = rows.size() > PAGE_SIZE;
+        if (hasOlder) {
+            rows.remove(PAGE_SIZE);
+        }
+        Long newerCursor = before != null && !rows.isEmpty() ? rows.get(0).getId() : null;
+        Long olderCursor = hasOlder ? rows.get(rows.size() - 1).getId() : null;
+        return new NotePage(rows, newerCursor, olderCursor);
     }
 
-    public List<Note> findAllByUserEmail(String email) {
-        User user = getUserByEmail(email);
-        return noteRepository.findByUserIdNative(user.getId());
+    /**
+     * Full-text search over the user's notes, ranked by BM25. Every whitespace-separated word in
+     * {@code query} has to match; FTS5 operators typed by the user are treated as plain text.
+     */
+    @Transactional(readOnly = true)
+    public NoteSearchPage search(String email, String query, int page) {
+        int safePage = Math.max(page, 0);
+        String match = toMatchExpression(query);
+        if (match == null) {
+            return new NoteSearchPage(query, List.of(), 0, false);
+        }
+        UserAccount user = getUserByEmail(email);
+        List<NoteSummary> rows = new ArrayList<>();
+        for (NoteSearchHit hit : noteRepository.search(user.id(), match, PAGE_SIZE + 1, (long) safePage * PAGE_SIZE)) {
+            rows.add(new NoteSummary(hit.getId(), hit.getTitle(), hit.getSnippet()));
+        }
+        boolean hasNext = rows.size() > PAGE_SIZE;
+        if (hasNext) {
+            rows.remove(PAGE_SIZE);
+        }
+        return new NoteSearchPage(query, rows, safePage, hasNext);
     }
 
-    public List<Note> getAllNotes() {
-        return noteRepository.findAll();
+    // Quotes every term so that FTS5 syntax (AND, NEAR, column filters, ...) cannot be injected
+    // and malformed input cannot make the MATCH fail; returns null when nothing is left to search.
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        int terms = 0;
+        for (String token : query.trim().split("\\s+")) {
+            String term = token.replace("\"", "");
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (terms > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(term).append('"');
+            if (++terms == SEARCH_MAX_TERMS) {
+                break;
+            }
+        }
+        return terms == 0 ? null : match.toString();
     }
 
-    public Note findByIdAndUserEmail(Long id, String email) {
-        Note note = noteRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Note not found"));
-
-        if (!note.getUser().getEmail().equals(email)) {
-            // SECURE LOGGING: Log unauthorized access attempt to a specific note
-            logger.warn(
-                    "Unauthorized note access attempt. User: '{}' tried to access Note ID: '{}' owned by User: '{}'",
-                    email, id, note.getUser().getEmail());
-            throw new AccessDeniedException("You do not have permission to access this note");
+    /**
+     * Returns up to {@link #ADMIN_PAGE_SIZE} + 1 admin rows with an id greater than {@code after};
+     * the extra row only signals that a next page exists.
+     */
+    @Transactional(readOnly = true)
+    public List<AdminNoteRow> findAdminPage(Long after) {
+        return noteRepository.findAdminRowsAfter(after != null ? after : 0L, Limit.of(ADMIN_PAGE_SIZE + 1));
+    }
+
+    // Hands the consumer every admin row while the cursor is open; nothing is collected in memory
+    @Transactional(readOnly = true)
+    public void withAdminRows(Consumer<Iterator<AdminNoteRow>> consumer) {
+        try (Stream<AdminNoteRow> rows = noteRepository.streamAdminRows()) {
+            consumer.accept(rows.iterator());
         }
-        return note;
     }
 
+    // Hands every note, with its full content, to the consumer while the cursor is open
+    @Transactional(readOnly = true)
+    public void forEachExportRow(Consumer<NoteExportRow> consumer) {
+        try (Stream<NoteExportRow> rows = noteRepository.streamExportRows()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns the version of the user's notes collection, which changes with every note written or
+     * deleted; empty when there is no such user. One lookup on users, no note is read.
+     */
+    @Transactional(readOnly = true)
+    public Optional<NotesVersion> findNotesVersion(String email) {
+        return userRepository.findNotesVersionByEmail(email);
+    }
+
+    @Transactional(readOnly = true)
+    public Note findByIdAndUserEmail(Long id, String email) {
+        return noteRepository.findByIdAndUserEmail(id, email)
+                .orElseThrow(() -> notFoundOrDenied(id, email));
+    }
+
+    // Writes run outside any caller transaction: NoteWriteBatcher commits them, possibly together
+    // with other users' writes, and returns once they are durable. Each write also bumps the owner's
+    // notes version in the same transaction, so a page validated against it can never miss a change.
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void createNote(NoteDto noteDto, String email) {
-        User user = getUserByEmail(email);
-        Note note = new Note(noteDto.getTitle(), noteDto.getContent(), user);
-        noteRepository.save(note);
+        writes.execute(() -> {
+            UserAccount user = getUserByEmail(email);
+            long now = System.currentTimeMillis();
+            // a reference is all the insert needs, the cached account already proved the user exists
+            User owner = userRepository.getReferenceById(user.id());
+            Note note = new Note(noteDto.getTitle(), noteDto.getContent(), owner);
+            note.setUpdatedAt(now);
+            Note saved = noteRepository.save(note);
+            userRepository.incrementNotesVersion(user.id(), now);
+            return saved;
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updateNote(Long id, NoteDto noteDto, String email) {
-        Note note = findByIdAndUserEmail(id, email);
-        note.setTitle(noteDto.getTitle());
-        note.setContent(noteDto.getContent());
-        noteRepository.save(note);
+        writes.execute(() -> {
+            UserAccount user = getUserByEmail(email);
+            long now = System.currentTimeMillis();
+            int updated = noteRepository.updateByIdAndUserId(id, user.id(), noteDto.getTitle(),
+                    noteDto.getContent(), now);
+            if (updated == 0) {
+                throw notFoundOrDenied(id, email);
+            }
+            userRepository.incrementNotesVersion(user.id(), now);
+            return null;
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void deleteNote(Long id, String email) {
-        Note note = findByIdAndUserEmail(id, email);
-        noteRepository.delete(note);
+        writes.execute(() -> {
+            UserAccount user = getUserByEmail(email);
+            if (noteRepository.deleteByIdAndUserId(id, user.id()) == 0) {
+                throw notFoundOrDenied(id, email);
+            }
+            userRepository.incrementNotesVersion(user.id(), System.currentTimeMillis());
+            return null;
+        });
+    }
+
+    // Called only after an owner-scoped query matched nothing
+    private RuntimeException notFoundOrDenied(Long id, String email) {
+        Optional<String> owner = noteRepository.findOwnerEmailById(id);
+        if (owner.isEmpty()) {
+            return new RuntimeException("Note not found");
+        }
+        // SECURE LOGGING: Log unauthorized access attempt to a specific note
+        securityEvents.publish(SecurityEventType.NOTE_ACCESS_DENIED, email, "note:" + id,
+                email, id, owner.get());
+        return new AccessDeniedException("You do not have permission to access this note");
     }
 
-    private User getUserByEmail(String email) {
+    private UserAccount getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
     }
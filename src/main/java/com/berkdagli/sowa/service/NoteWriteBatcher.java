@@ -0,0 +1,244 @@
+package com.berkdagli.sowa.service;
+
+import com.berkdagli.sowa.metrics.RequestQueryStatistics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for note writes.
+ * <p>
+ * With batching enabled, {@link #execute} queues the write and blocks until a single background
+ * thread has committed it. That thread takes the first queued write, waits at most
+ * {@code max-delay} for more to arrive (up to {@code max-batch-size}), and runs them all in one
+ * transaction, so concurrent writers share one commit and one fsync. A write that throws only fails
+ * its own caller. If the shared commit itself fails, nothing of the batch was persisted and every
+ * write that did not throw is redone in a transaction of its own. Callers return only after their
+ * write is committed, so whatever they read next already sees it. A write the batcher does not pick
+ * up in time, or that is still queued when the batcher shuts down, is committed by its caller.
+ */
+@Component
+public class NoteWriteBatcher implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteWriteBatcher.class);
+
+    private final NoteWriteProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedWrites = new AtomicLong();
+    private final AtomicLong retriedWrites = new AtomicLong();
+
+    public NoteWriteBatcher(NoteWriteProperties properties, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+        if (properties.isEnabled()) {
+            this.committer = new Thread(this::commitLoop, "note-write-batcher");
+            this.committer.setDaemon(true);
+            this.committer.start();
+        } else {
+            this.committer = null;
+        }
+    }
+
+    /**
+     * Runs {@code work} in a transaction and returns once that transaction has committed. Must not be
+     * called from inside a transaction: with batching on, the caller would hold a connection the
+     * batcher needs. Work that throws must do so before it has written anything, because the other
+     * writes of its batch are still committed; it is not run again. Work that succeeds may run a
+     * second time when its batch rolls back, so it must not have side effects outside the transaction.
+     */
+    public <T> T execute(Supplier<T> work) {
+        if (!running || committer == null) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        PendingWrite<T> write = new PendingWrite<>(work);
+        if (!queue.offer(write)) {
+            // Saturated: commit on the caller's thread rather than reject the write
+            return transactionTemplate.execute(status -> work.get());
+        }
+        // destroy() may have stopped the committer between the check above and the offer
+        if (!running && queue.remove(write)) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        try {
+            try {
+                return write.future.get(properties.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(write)) {
+                    // never picked up (committer stalled or gone): commit it here rather than wait on
+                    logger.warn("Note write not picked up within {}, committing it on the caller's thread",
+                            properties.getMaxQueueWait());
+                    return transactionTemplate.execute(status -> work.get());
+                }
+                // part of a batch by now, which finishes within the transaction's own timeouts
+                return write.future.join();
+            }
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a note write to commit", e);
+        }
+    }
+
+    private void commitLoop() {
+        List<PendingWrite<?>> batch = new ArrayList<>(properties.getMaxBatchSize());
+        long maxDelayNanos = properties.getMaxDelay().toNanos();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Note write batch failed", e);
+                batch.forEach(write -> write.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(PendingWrite::run));
+        } catch (RuntimeException e) {
+            // The shared transaction rolled back, so no write of this batch is persisted. Writes that threw
+            // keep their own exception and are not run again, their side effects (security events) included.
+            logger.debug("Note write batch of {} rolled back, committing writes one by one", batch.size(), e);
+            for (PendingWrite<?> write : batch) {
+                if (write.error != null) {
+                    write.complete();
+                    continue;
+                }
+                retriedWrites.incrementAndGet();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write.run());
+                } catch (RuntimeException commitFailure) {
+                    write.failIfSucceeded(commitFailure);
+                }
+                write.complete();
+            }
+            return;
+        }
+        batches.incrementAndGet();
+        batchedWrites.addAndGet(batch.size());
+        batch.forEach(PendingWrite::complete);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sowa.notes.writes.batches", batches, AtomicLong::get)
+                .description("Transactions committed by the note write batcher")
+                .register(registry);
+        FunctionCounter.builder("sowa.notes.writes.batched", batchedWrites, AtomicLong::get)
+                .description("Note writes committed as part of a batch")
+                .register(registry);
+        FunctionCounter.builder("sowa.notes.writes.retried", retriedWrites, AtomicLong::get)
+                .description("Note writes recommitted on their own after their batch rolled back")
+                .register(registry);
+        Gauge.builder("sowa.notes.writes.queue.size", queue, BlockingQueue::size)
+                .description("Note writes waiting for the batcher")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (committer == null) {
+            return;
+        }
+        committer.join(TimeUnit.SECONDS.toMillis(5));
+        // Whatever the committer did not get to is committed here, so no caller is left waiting
+        List<PendingWrite<?>> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (PendingWrite<?> write : left) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write.run());
+            } catch (RuntimeException e) {
+                write.failIfSucceeded(e);
+            }
+            write.complete();
+        }
+    }
+
+    // A queued write and its outcome; the outcome is only published once the transaction has committed.
+    // Its statements count towards the caller's request, whichever thread runs them.
+    private static final class PendingWrite<T> {
+        final Supplier<T> work;
+        final RequestQueryStatistics statistics = RequestQueryStatistics.current();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        RuntimeException error;
+
+        PendingWrite(Supplier<T> work) {
+            this.work = work;
+        }
+
+        void run() {
+            result = null;
+            error = null;
+            try (RequestQueryStatistics.Scope scope = RequestQueryStatistics.attach(statistics)) {
+                result = work.get();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        // Keeps the write's own exception if it threw one, otherwise reports why its commit failed
+        void failIfSucceeded(RuntimeException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.berkdagli.sowa.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.notes.write-batching")
+public class NoteWriteProperties {
+
+    // when off, every note write is its own transaction on the calling thread
+    private boolean enabled = false;
+
+    // most writes committed together in one transaction
+    private int maxBatchSize = 64;
+
+    // longest a write waits for others to join its batch
+    private Duration maxDelay = Duration.ofMillis(5);
+
+    // writes waiting for the batcher; beyond this callers commit on their own thread
+    private int queueCapacity = 1024;
+
+    // a write the batcher has not picked up within this time is committed on the caller's thread instead
+    private Duration maxQueueWait = Duration.ofSeconds(5);
+}
@@ -1,14 +1,23 @@
 package com.berkdagli.sowa.service;
 
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.model.User;
 import com.berkdagli.sowa.repository.UserRepository;
+import com.berkdagli.sowa.security.password.PasswordHashingRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
 @Service
-public class UserService implements org.springframework.security.core.userdetails.UserDetailsService {
+public class UserService implements org.springframework.security.core.userdetails.UserDetailsService,
+        UserDetailsPasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
@@ -21,18 +30,18 @@ public class UserService implements org.springframework.security.core.userdetail
     @Override
     public org.springframework.security.core.userdetails.UserDetails loadUserByUsername(String email)
             throws org.springframework.security.core.userdetails.UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
+        UserAccount user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new org.springframework.security.core.userdetails.UsernameNotFoundException(
                         "User not found with email: " + email));
 
-        String role = user.getRole();
+        String role = user.role();
         if (!role.startsWith("ROLE_")) {
             role = "ROLE_" + role;
         }
 
         return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
+                user.email(),
+                user.password(),
                 java.util.Collections
                         .singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority(role)));
     }
@@ -46,14 +55,49 @@ public class UserService implements org.springframework.security.core.userdetail
         return userRepository.save(user);
     }
 
-    public User authenticate(String email, String password) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+    public void changeRole(String email, String role) {
+        if (userRepository.updateRoleByEmail(email, role) == 0) {
+            throw new RuntimeException("User not found with email: " + email);
+        }
+    }
+
+    public Optional<UserAccount> findByEmail(String email) {
+        return userRepository.findByEmail(email);
+    }
+
+    public UserAccount authenticate(String email, String password) {
+        Optional<UserAccount> userOptional = userRepository.findByEmail(email);
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            if (passwordEncoder.matches(password, user.getPassword())) {
+            UserAccount user = userOptional.get();
+            if (passwordEncoder.matches(password, user.password())) {
+                upgradePasswordHash(user, password);
                 return user;
             }
         }
         throw new RuntimeException("Invalid credentials");
     }
+
+    // Called by BestEffortUpgradeAuthenticationProvider after a successful form login whose stored hash
+    // needs an upgrade
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    // Rehashes with the current algorithm and cost while the raw password is at hand. Best effort:
+    // the login itself already succeeded.
+    private void upgradePasswordHash(UserAccount user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.password())) {
+            return;
+        }
+        try {
+            String upgraded = passwordEncoder.encode(rawPassword);
+            userRepository.updatePasswordByEmail(user.email(), upgraded);
+        } catch (PasswordHashingRejectedException e) {
+            logger.debug("Password hash upgrade for {} postponed: {}", user.email(), e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,191 @@
+package com.berkdagli.sowa.session;
+
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.FactorGrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Session attribute encoding. The two attributes every logged-in session carries, the security context and
+ * the CSRF token, are written field by field (tens of bytes instead of the 1-2 KB of Java serialization of
+ * the whole token/principal/authority graph). Everything else falls back to Java serialization, whose
+ * stream header (0xACED) cannot collide with the tags used here.
+ */
+public class CompactSessionSerializer {
+
+    private static final byte SECURITY_CONTEXT = 1;
+    private static final byte CSRF_TOKEN = 2;
+
+    private static final int ENABLED = 1;
+    private static final int ACCOUNT_NON_EXPIRED = 1 << 1;
+    private static final int CREDENTIALS_NON_EXPIRED = 1 << 2;
+    private static final int ACCOUNT_NON_LOCKED = 1 << 3;
+    private static final int HAS_DETAILS = 1 << 4;
+
+    private static final byte ROLE_AUTHORITY = 0;
+    private static final byte FACTOR_AUTHORITY = 1;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer;
+
+    public CompactSessionSerializer(ClassLoader classLoader) {
+        this.deserializer = new DeserializingConverter(classLoader);
+    }
+
+    public byte[] serialize(Object value) {
+        try {
+            if (value instanceof SecurityContext context && isCompact(context.getAuthentication())) {
+                return writeSecurityContext((UsernamePasswordAuthenticationToken) context.getAuthentication());
+            }
+            if (value instanceof DefaultCsrfToken token) {
+                return writeCsrfToken(token);
+            }
+        } catch (IOException e) {
+            // a string too long for writeUTF; the generic format has no such limit
+        }
+        return serializer.convert(value);
+    }
+
+    public Object deserialize(byte[] bytes) {
+        try {
+            return switch (bytes[0]) {
+                case SECURITY_CONTEXT -> readSecurityContext(input(bytes));
+                case CSRF_TOKEN -> readCsrfToken(input(bytes));
+                default -> deserializer.convert(bytes);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A form login as produced by UserService.loadUserByUsername: User principal, credentials erased
+    private static boolean isCompact(Authentication authentication) {
+        return authentication != null
+                && authentication.getClass() == UsernamePasswordAuthenticationToken.class
+                && authentication.isAuthenticated()
+                && authentication.getCredentials() == null
+                && authentication.getPrincipal() instanceof User user
+                && user.getPassword() == null
+                && (authentication.getDetails() == null
+                        || authentication.getDetails().getClass() == WebAuthenticationDetails.class)
+                && authentication.getAuthorities().size() <= 255
+                && authentication.getAuthorities().stream().allMatch(a -> a.getClass() == SimpleGrantedAuthority.class
+                        || a.getClass() == FactorGrantedAuthority.class)
+                && Set.copyOf(user.getAuthorities()).equals(authentication.getAuthorities().stream()
+                        .filter(a -> a.getClass() == SimpleGrantedAuthority.class).collect(Collectors.toSet()));
+    }
+
+    private static byte[] writeSecurityContext(UsernamePasswordAuthenticationToken authentication) throws IOException {
+        UserDetails user = (UserDetails) authentication.getPrincipal();
+        WebAuthenticationDetails details = (WebAuthenticationDetails) authentication.getDetails();
+        int flags = (user.isEnabled() ? ENABLED : 0)
+                | (user.isAccountNonExpired() ? ACCOUNT_NON_EXPIRED : 0)
+                | (user.isCredentialsNonExpired() ? CREDENTIALS_NON_EXPIRED : 0)
+                | (user.isAccountNonLocked() ? ACCOUNT_NON_LOCKED : 0)
+                | (details != null ? HAS_DETAILS : 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SECURITY_CONTEXT);
+        out.writeByte(flags);
+        out.writeUTF(user.getUsername());
+        out.writeByte(authentication.getAuthorities().size());
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (authority instanceof FactorGrantedAuthority factor) {
+                out.writeByte(FACTOR_AUTHORITY);
+                out.writeUTF(factor.getAuthority());
+                out.writeLong(factor.getIssuedAt().getEpochSecond());
+                out.writeInt(factor.getIssuedAt().getNano());
+            } else {
+                out.writeByte(ROLE_AUTHORITY);
+                out.writeUTF(authority.getAuthority());
+            }
+        }
+        if (details != null) {
+            writeNullable(out, details.getRemoteAddress());
+            writeNullable(out, details.getSessionId());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        String username = in.readUTF();
+        int count = in.readUnsignedByte();
+        List<GrantedAuthority> authorities = new ArrayList<>(count);
+        List<GrantedAuthority> roles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.readByte() == FACTOR_AUTHORITY) {
+                authorities.add(FactorGrantedAuthority.withAuthority(in.readUTF())
+                        .issuedAt(Instant.ofEpochSecond(in.readLong(), in.readInt()))
+                        .build());
+            } else {
+                SimpleGrantedAuthority role = new SimpleGrantedAuthority(in.readUTF());
+                authorities.add(role);
+                roles.add(role);
+            }
+        }
+        // the principal carries the user's roles; the authentication adds the factors it was obtained with
+        User user = new User(username, "", (flags & ENABLED) != 0, (flags & ACCOUNT_NON_EXPIRED) != 0,
+                (flags & CREDENTIALS_NON_EXPIRED) != 0, (flags & ACCOUNT_NON_LOCKED) != 0, roles);
+        user.eraseCredentials();
+
+        UsernamePasswordAuthenticationToken authentication =
+                UsernamePasswordAuthenticationToken.authenticated(user, null, authorities);
+        if ((flags & HAS_DETAILS) != 0) {
+            authentication.setDetails(new WebAuthenticationDetails(readNullable(in), readNullable(in)));
+        }
+        return new SecurityContextImpl(authentication);
+    }
+
+    private static byte[] writeCsrfToken(CsrfToken token) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(CSRF_TOKEN);
+        out.writeUTF(token.getHeaderName());
+        out.writeUTF(token.getParameterName());
+        out.writeUTF(token.getToken());
+        return bytes.toByteArray();
+    }
+
+    private static CsrfToken readCsrfToken(DataInputStream in) throws IOException {
+        return new DefaultCsrfToken(in.readUTF(), in.readUTF(), in.readUTF());
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
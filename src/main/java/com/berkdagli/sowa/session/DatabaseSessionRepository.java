@@ -0,0 +1,330 @@
+package com.berkdagli.sowa.session;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spring Session repository over the {@code http_sessions} tables (V5). Nothing is kept in memory between
+ * requests, so sessions survive restarts and can be served by any instance sharing the database.
+ * <p>
+ * Lookups run as read-only transactions (a reader connection in SQLite performance mode). Attributes are
+ * decoded on first access and only attributes set or removed during the request are written back; the
+ * session row is updated only when its id or timeout changed or the last-access time moved by at least
+ * {@code accessTimeResolution}. A request that just reads its session therefore writes nothing.
+ * <p>
+ * Expired sessions are deleted when looked up. Sessions nobody comes back for are swept in bulk at most once
+ * per {@code sweepInterval}, when a new session is created.
+ */
+public class DatabaseSessionRepository implements SessionRepository<DatabaseSessionRepository.DatabaseSession> {
+
+    private static final String SELECT_SESSION = """
+            SELECT s.primary_id, s.session_id, s.creation_time, s.last_access_time, s.max_inactive_seconds,
+                   s.expiry_time, a.name, a.value
+            FROM http_sessions s LEFT JOIN http_session_attributes a ON a.session_primary_id = s.primary_id
+            WHERE s.session_id = ?""";
+    private static final String INSERT_SESSION = """
+            INSERT INTO http_sessions (primary_id, session_id, creation_time, last_access_time,
+                                       max_inactive_seconds, expiry_time)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    private static final String UPDATE_SESSION = """
+            UPDATE http_sessions SET session_id = ?, last_access_time = ?, max_inactive_seconds = ?, expiry_time = ?
+            WHERE primary_id = ?""";
+    private static final String UPSERT_ATTRIBUTE = """
+            INSERT INTO http_session_attributes (session_primary_id, name, value) VALUES (?, ?, ?)
+            ON CONFLICT (session_primary_id, name) DO UPDATE SET value = excluded.value""";
+    private static final String DELETE_ATTRIBUTE =
+            "DELETE FROM http_session_attributes WHERE session_primary_id = ? AND name = ?";
+    private static final String DELETE_ATTRIBUTES =
+            "DELETE FROM http_session_attributes WHERE session_primary_id = ?";
+    private static final String DELETE_SESSION = "DELETE FROM http_sessions WHERE primary_id = ?";
+    private static final String DELETE_ATTRIBUTES_BY_SESSION_ID = """
+            DELETE FROM http_session_attributes
+            WHERE session_primary_id = (SELECT primary_id FROM http_sessions WHERE session_id = ?)""";
+    private static final String DELETE_SESSION_BY_SESSION_ID = "DELETE FROM http_sessions WHERE session_id = ?";
+    private static final String DELETE_EXPIRED_ATTRIBUTES = """
+            DELETE FROM http_session_attributes
+            WHERE session_primary_id IN (SELECT primary_id FROM http_sessions WHERE expiry_time < ?)""";
+    private static final String DELETE_EXPIRED_SESSIONS = "DELETE FROM http_sessions WHERE expiry_time < ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final CompactSessionSerializer serializer;
+    private final Duration defaultMaxInactiveInterval;
+    private final long accessTimeResolutionMillis;
+    private final long sweepIntervalMillis;
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    public DatabaseSessionRepository(DataSource dataSource, CompactSessionSerializer serializer,
+            Duration defaultMaxInactiveInterval, SessionStoreProperties properties) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        // plain JDBC transactions: sessions are read and written outside any JPA unit of work
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.serializer = serializer;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.accessTimeResolutionMillis = properties.getAccessTimeResolution().toMillis();
+        this.sweepIntervalMillis = properties.getSweepInterval().toMillis();
+    }
+
+    @Override
+    public DatabaseSession createSession() {
+        DatabaseSession session = new DatabaseSession(Instant.now(), defaultMaxInactiveInterval);
+        sweepExpiredIfDue();
+        return session;
+    }
+
+    @Override
+    public void save(DatabaseSession session) {
+        if (session.isNew) {
+            writeTransaction.executeWithoutResult(status -> insert(session));
+            session.isNew = false;
+        } else if (session.needsRowUpdate(accessTimeResolutionMillis) || !session.dirty.isEmpty()) {
+            writeTransaction.executeWithoutResult(status -> update(session));
+        } else {
+            return;
+        }
+        session.persistedLastAccessedTime = session.lastAccessedTime;
+        session.persistedId = session.id;
+        session.rowChanged = false;
+        session.dirty.clear();
+    }
+
+    @Override
+    public DatabaseSession findById(String id) {
+        DatabaseSession session = readTransaction.execute(status -> jdbc.query(SELECT_SESSION, rs -> {
+            DatabaseSession found = null;
+            while (rs.next()) {
+                if (found == null) {
+                    found = new DatabaseSession(rs.getString(1), rs.getString(2),
+                            Instant.ofEpochMilli(rs.getLong(3)), Instant.ofEpochMilli(rs.getLong(4)),
+                            Duration.ofSeconds(rs.getLong(5)));
+                }
+                String name = rs.getString(7);
+                if (name != null) {
+                    found.attributes.put(name, new Encoded(rs.getBytes(8)));
+                }
+            }
+            return found;
+        }, id));
+        if (session == null) {
+            return null;
+        }
+        if (session.isExpired()) {
+            delete(session.primaryId);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        writeTransaction.executeWithoutResult(status -> {
+            jdbc.update(DELETE_ATTRIBUTES_BY_SESSION_ID, id);
+            jdbc.update(DELETE_SESSION_BY_SESSION_ID, id);
+        });
+    }
+
+    // Deletes every session that has expired by now; returns how many
+    public int deleteExpired() {
+        long now = System.currentTimeMillis();
+        Integer deleted = writeTransaction.execute(status -> {
+            jdbc.update(DELETE_EXPIRED_ATTRIBUTES, now);
+            return jdbc.update(DELETE_EXPIRED_SESSIONS, now);
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private void sweepExpiredIfDue() {
+        long now = System.currentTimeMillis();
+        long due = nextSweep.get();
+        if (now >= due && nextSweep.compareAndSet(due, now + sweepIntervalMillis)) {
+            deleteExpired();
+        }
+    }
+
+    private void insert(DatabaseSession session) {
+        jdbc.update(INSERT_SESSION, session.primaryId, session.id, session.creationTime.toEpochMilli(),
+                session.lastAccessedTime.toEpochMilli(), session.maxInactiveInterval.toSeconds(),
+                session.expiryTimeMillis());
+        for (String name : session.dirty) {
+            Object value = session.attributes.get(name);
+            if (value != null) {
+                jdbc.update(UPSERT_ATTRIBUTE, session.primaryId, name, encode(value));
+            }
+        }
+    }
+
+    private void update(DatabaseSession session) {
+        if (session.needsRowUpdate(accessTimeResolutionMillis)) {
+            jdbc.update(UPDATE_SESSION, session.id, session.lastAccessedTime.toEpochMilli(),
+                    session.maxInactiveInterval.toSeconds(), session.expiryTimeMillis(), session.primaryId);
+        }
+        for (String name : session.dirty) {
+            Object value = session.attributes.get(name);
+            if (value == null) {
+                jdbc.update(DELETE_ATTRIBUTE, session.primaryId, name);
+            } else {
+                jdbc.update(UPSERT_ATTRIBUTE, session.primaryId, name, encode(value));
+            }
+        }
+    }
+
+    private void delete(String primaryId) {
+        writeTransaction.executeWithoutResult(status -> {
+            jdbc.update(DELETE_ATTRIBUTES, primaryId);
+            jdbc.update(DELETE_SESSION, primaryId);
+        });
+    }
+
+    private byte[] encode(Object value) {
+        return value instanceof Encoded encoded ? encoded.bytes() : serializer.serialize(value);
+    }
+
+    // An attribute as loaded, decoded on first access
+    private record Encoded(byte[] bytes) {
+    }
+
+    public final class DatabaseSession implements Session {
+
+        private final String primaryId;
+        private final Instant creationTime;
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private final Set<String> dirty = new HashSet<>();
+        private String id;
+        private String persistedId;
+        private Instant lastAccessedTime;
+        private Instant persistedLastAccessedTime;
+        private Duration maxInactiveInterval;
+        private boolean isNew;
+        private boolean rowChanged;
+
+        private DatabaseSession(Instant now, Duration maxInactiveInterval) {
+            this.primaryId = UUID.randomUUID().toString();
+            this.id = UUID.randomUUID().toString();
+            this.creationTime = now;
+            this.lastAccessedTime = now;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.isNew = true;
+        }
+
+        private DatabaseSession(String primaryId, String id, Instant creationTime, Instant lastAccessedTime,
+                Duration maxInactiveInterval) {
+            this.primaryId = primaryId;
+            this.id = id;
+            this.persistedId = id;
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.persistedLastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String changeSessionId() {
+            id = UUID.randomUUID().toString();
+            rowChanged = true;
+            return id;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getAttribute(String attributeName) {
+            Object value = attributes.get(attributeName);
+            if (value instanceof Encoded encoded) {
+                value = serializer.deserialize(encoded.bytes());
+                attributes.put(attributeName, value);
+            }
+            return (T) value;
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return new HashSet<>(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            if (attributeValue == null) {
+                removeAttribute(attributeName);
+                return;
+            }
+            attributes.put(attributeName, attributeValue);
+            dirty.add(attributeName);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            if (attributes.remove(attributeName) != null) {
+                dirty.add(attributeName);
+            }
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            if (!interval.equals(maxInactiveInterval)) {
+                maxInactiveInterval = interval;
+                rowChanged = true;
+            }
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return !maxInactiveInterval.isNegative()
+                    && !Instant.now().isBefore(lastAccessedTime.plus(maxInactiveInterval));
+        }
+
+        private boolean needsRowUpdate(long accessTimeResolutionMillis) {
+            return rowChanged || !id.equals(persistedId)
+                    || lastAccessedTime.toEpochMilli() - persistedLastAccessedTime.toEpochMilli()
+                            >= accessTimeResolutionMillis;
+        }
+
+        private long expiryTimeMillis() {
+            return maxInactiveInterval.isNegative()
+                    ? Long.MAX_VALUE
+                    : lastAccessedTime.plus(maxInactiveInterval).toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.berkdagli.sowa.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.session")
+public class SessionStoreProperties {
+
+    // SERVLET keeps sessions in the container's memory; DATABASE stores them in the application database
+    private Store store = Store.SERVLET;
+
+    // last-access time is persisted at most this often, so read-only requests don't cost a write;
+    // a session may therefore time out up to this much early
+    private Duration accessTimeResolution = Duration.ofMinutes(1);
+
+    // expired sessions are removed when looked up; abandoned ones are swept at most this often,
+    // piggybacked on the creation of a new session
+    private Duration sweepInterval = Duration.ofHours(1);
+
+    public enum Store {
+        SERVLET,
+        DATABASE
+    }
+}
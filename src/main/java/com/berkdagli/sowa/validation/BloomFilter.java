@@ -0,0 +1,75 @@
+package com.berkdagli.sowa.validation;
+
+import java.util.Collection;
+
+/**
+ * Fixed-size Bloom filter over case-folded strings. Membership tests hash the characters in place, so a
+ * lookup allocates nothing; a hit means "probably present" at the false-positive rate it was sized for.
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    private BloomFilter(int bitCount, int hashCount) {
+        this.bits = new long[(bitCount + 63) >>> 6];
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    public static BloomFilter of(Collection<String> values, double falsePositiveRate) {
+        int n = Math.max(1, values.size());
+        // optimal sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        int bitCount = (int) Math.max(64, Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        BloomFilter filter = new BloomFilter(bitCount, hashCount);
+        for (String value : values) {
+            filter.add(value);
+        }
+        return filter;
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // size of the bit array in bytes
+    public int sizeInBytes() {
+        return bits.length * Long.BYTES;
+    }
+
+    private void add(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // FNV-1a over the lower-cased UTF-16 units, finished with the murmur3 fmix64 mixer so both halves are usable
+    private static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= Character.toLowerCase(value.charAt(i));
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
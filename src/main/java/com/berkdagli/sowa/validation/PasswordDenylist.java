@@ -0,0 +1,74 @@
+package com.berkdagli.sowa.validation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Breached and common passwords, held as a {@link BloomFilter} so that even a list of millions of entries
+ * costs a few bytes per entry and a lookup costs a handful of hash probes.
+ */
+@Component
+public class PasswordDenylist {
+
+    public static final String DEFAULT_LOCATION = "classpath:security/breached-passwords.txt";
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordDenylist.class);
+
+    private final BloomFilter filter;
+
+    @Autowired
+    public PasswordDenylist(PasswordPolicyProperties properties, ResourceLoader resourceLoader) {
+        String file = properties.getDenylistFile();
+        if (file == null || file.isBlank()) {
+            this.filter = null;
+            return;
+        }
+        List<String> passwords = readPasswords(resourceLoader.getResource(file));
+        this.filter = BloomFilter.of(passwords, properties.getDenylistFalsePositiveRate());
+        logger.info("Loaded {} denylisted passwords into a {} byte Bloom filter", passwords.size(),
+                filter.sizeInBytes());
+    }
+
+    // The bundled list, for validators created outside Spring
+    public static PasswordDenylist defaults() {
+        return Defaults.INSTANCE;
+    }
+
+    public boolean contains(CharSequence password) {
+        return filter != null && filter.mightContain(password);
+    }
+
+    static List<String> readPasswords(Resource resource) {
+        List<String> passwords = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    passwords.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the password denylist from " + resource, e);
+        }
+        return passwords;
+    }
+
+    private static final class Defaults {
+        static final PasswordDenylist INSTANCE =
+                new PasswordDenylist(new PasswordPolicyProperties(), new DefaultResourceLoader());
+    }
+}
@@ -0,0 +1,15 @@
+package com.berkdagli.sowa.validation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sowa.security.password-policy")
+public class PasswordPolicyProperties {
+
+    // breached/common passwords, one per line (# comments); matched case-insensitively. Blank disables it
+    private String denylistFile = PasswordDenylist.DEFAULT_LOCATION;
+
+    // chance that an acceptable password is rejected as breached; sizes the Bloom filter
+    private double denylistFalsePositiveRate = 0.001;
+}
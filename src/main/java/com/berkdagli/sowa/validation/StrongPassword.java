@@ -15,4 +15,21 @@ public @interface StrongPassword {
     Class<?>[] groups() default {};
 
     Class<? extends Payload>[] payload() default {};
+
+    int minLength() default 8;
+
+    // longer input is rejected before any other check, bounding the work an attacker can cause
+    int maxLength() default 64;
+
+    boolean requireUppercase() default true;
+
+    boolean requireLowercase() default true;
+
+    boolean requireDigit() default true;
+
+    // at least one of these characters; empty disables the rule
+    String specialCharacters() default "@#$%^&+=!";
+
+    // reject passwords found in the PasswordDenylist
+    boolean checkDenylist() default true;
 }
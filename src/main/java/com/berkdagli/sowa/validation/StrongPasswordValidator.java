@@ -2,45 +2,133 @@ package com.berkdagli.sowa.validation;
 
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
+import org.springframework.beans.factory.annotation.Autowired;
 
+/**
+ * Checks all character classes in one pass over the password, with a lookup table for the special
+ * characters. An acceptable password is validated without allocating; messages are built once up front.
+ */
 public class StrongPasswordValidator implements ConstraintValidator<StrongPassword, String> {
 
+    private static final int UPPERCASE = 1;
+    private static final int LOWERCASE = 1 << 1;
+    private static final int DIGIT = 1 << 2;
+    private static final int SPECIAL = 1 << 3;
+
+    private final PasswordDenylist denylist;
+
+    private int maxLength;
+    private int minLength;
+    private int requiredClasses;
+    private String specialCharacters;
+    private final boolean[] asciiSpecial = new boolean[128];
+    private boolean checkDenylist;
+    private String tooLongMessage;
+    private String tooShortMessage;
+    private String missingSpecialMessage;
+
+    public StrongPasswordValidator() {
+        this(PasswordDenylist.defaults());
+    }
+
+    @Autowired
+    public StrongPasswordValidator(PasswordDenylist denylist) {
+        this.denylist = denylist;
+    }
+
+    @Override
+    public void initialize(StrongPassword annotation) {
+        minLength = annotation.minLength();
+        maxLength = annotation.maxLength();
+        specialCharacters = annotation.specialCharacters();
+        checkDenylist = annotation.checkDenylist();
+        requiredClasses = (annotation.requireUppercase() ? UPPERCASE : 0)
+                | (annotation.requireLowercase() ? LOWERCASE : 0)
+                | (annotation.requireDigit() ? DIGIT : 0)
+                | (specialCharacters.isEmpty() ? 0 : SPECIAL);
+        for (int i = 0; i < specialCharacters.length(); i++) {
+            char c = specialCharacters.charAt(i);
+            if (c < 128) {
+                asciiSpecial[c] = true;
+            }
+        }
+        tooLongMessage = "Password must be at most " + maxLength + " characters long";
+        tooShortMessage = "Password must be at least " + minLength + " characters long";
+        missingSpecialMessage = "Password must contain at least one special character ("
+                + escapeTemplate(specialCharacters) + ")";
+    }
+
     @Override
     public boolean isValid(String password, ConstraintValidatorContext context) {
         if (password == null) {
             return false;
         }
 
-        boolean isValid = true;
-        context.disableDefaultConstraintViolation();
+        int length = password.length();
+        if (length > maxLength) {
+            // nothing else is looked at: the cost of rejecting stays constant however long the input
+            violation(context, tooLongMessage);
+            return false;
+        }
+
+        int found = 0;
+        for (int i = 0; i < length && found != requiredClasses; i++) {
+            found |= classOf(password.charAt(i));
+        }
 
-        if (password.length() < 8) {
-            context.buildConstraintViolationWithTemplate("Password must be at least 8 characters long")
-                    .addConstraintViolation();
+        boolean isValid = true;
+        if (length < minLength) {
+            violation(context, tooShortMessage);
             isValid = false;
         }
-        if (!password.matches(".*[A-Z].*")) {
-            context.buildConstraintViolationWithTemplate("Password must contain at least one uppercase letter")
-                    .addConstraintViolation();
+        int missing = requiredClasses & ~found;
+        if ((missing & UPPERCASE) != 0) {
+            violation(context, "Password must contain at least one uppercase letter");
             isValid = false;
         }
-        if (!password.matches(".*[a-z].*")) {
-            context.buildConstraintViolationWithTemplate("Password must contain at least one lowercase letter")
-                    .addConstraintViolation();
+        if ((missing & LOWERCASE) != 0) {
+            violation(context, "Password must contain at least one lowercase letter");
             isValid = false;
         }
-        if (!password.matches(".*[0-9].*")) {
-            context.buildConstraintViolationWithTemplate("Password must contain at least one digit")
-                    .addConstraintViolation();
+        if ((missing & DIGIT) != 0) {
+            violation(context, "Password must contain at least one digit");
             isValid = false;
         }
-        if (!password.matches(".*[@#$%^&+=!].*")) {
-            context.buildConstraintViolationWithTemplate(
-                    "Password must contain at least one special character (@#$%^&+=!)")
-                    .addConstraintViolation();
+        if ((missing & SPECIAL) != 0) {
+            violation(context, missingSpecialMessage);
+            isValid = false;
+        }
+        if (isValid && checkDenylist && denylist.contains(password)) {
+            violation(context, "Password is too common; it appears in lists of breached passwords");
             isValid = false;
         }
-
         return isValid;
     }
+
+    // ASCII letters and digits only, like the [A-Z]/[a-z]/[0-9] classes this replaced
+    private int classOf(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return UPPERCASE;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return LOWERCASE;
+        }
+        if (c >= '0' && c <= '9') {
+            return DIGIT;
+        }
+        if (c < 128 ? asciiSpecial[c] : specialCharacters.indexOf(c) >= 0) {
+            return SPECIAL;
+        }
+        return 0;
+    }
+
+    // messages are interpreted as templates, where {, }, $ and \ are meta characters
+    private static String escapeTemplate(String text) {
+        return text.replaceAll("([{}$\\\\])", "\\\\$1");
+    }
+
+    private static void violation(ConstraintValidatorContext context, String message) {
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(message).addConstraintViolation();
+    }
 }
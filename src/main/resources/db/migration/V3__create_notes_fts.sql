@@ -0,0 +1,26 @@
+-- Full-text index over notes. External content: the text lives only in notes, the FTS table
+-- keeps the index and reads title/content back from notes by rowid (= notes.id).
+CREATE VIRTUAL TABLE notes_fts USING fts5(
+    title,
+    content,
+    content = 'notes',
+    content_rowid = 'id',
+    tokenize = 'unicode61 remove_diacritics 2'
+);
+
+-- Keep the index in sync incrementally on every write to notes
+CREATE TRIGGER notes_fts_after_insert AFTER INSERT ON notes BEGIN
+    INSERT INTO notes_fts (rowid, title, content) VALUES (new.id, new.title, new.content);
+END;
+
+CREATE TRIGGER notes_fts_after_delete AFTER DELETE ON notes BEGIN
+    INSERT INTO notes_fts (notes_fts, rowid, title, content) VALUES ('delete', old.id, old.title, old.content);
+END;
+
+CREATE TRIGGER notes_fts_after_update AFTER UPDATE OF title, content ON notes BEGIN
+    INSERT INTO notes_fts (notes_fts, rowid, title, content) VALUES ('delete', old.id, old.title, old.content);
+    INSERT INTO notes_fts (rowid, title, content) VALUES (new.id, new.title, new.content);
+END;
+
+-- Index the notes that already exist
+INSERT INTO notes_fts (notes_fts) VALUES ('rebuild');
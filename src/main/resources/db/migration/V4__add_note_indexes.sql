@@ -0,0 +1,7 @@
+-- Owner access paths on notes: the per-user listing (user_id = ? ORDER BY id, seeking on id), owner
+-- checks, and the ON DELETE CASCADE from users, which would otherwise scan notes for every user removed.
+-- id is the rowid, so the index also answers the keyset bounds without touching the table.
+CREATE INDEX idx_notes_user_id_id ON notes (user_id, id);
+
+-- users.email needs no index of its own: the UNIQUE constraint from V1 is backed by
+-- sqlite_autoindex_users_1, which QueryPlanTest checks the email lookups use.
@@ -0,0 +1,20 @@
+-- Servlet sessions (see DatabaseSessionRepository). The primary id never changes; session_id is the
+-- cookie value and is rotated on login. Attributes are one row each, so a request rewrites only what it set.
+CREATE TABLE http_sessions (
+    primary_id TEXT PRIMARY KEY,
+    session_id TEXT NOT NULL UNIQUE,
+    creation_time INTEGER NOT NULL,
+    last_access_time INTEGER NOT NULL,
+    max_inactive_seconds INTEGER NOT NULL,
+    expiry_time INTEGER NOT NULL
+) WITHOUT ROWID;
+
+CREATE INDEX idx_http_sessions_expiry_time ON http_sessions (expiry_time);
+
+CREATE TABLE http_session_attributes (
+    session_primary_id TEXT NOT NULL,
+    name TEXT NOT NULL,
+    value BLOB NOT NULL,
+    PRIMARY KEY (session_primary_id, name),
+    FOREIGN KEY (session_primary_id) REFERENCES http_sessions(primary_id) ON DELETE CASCADE
+) WITHOUT ROWID;
@@ -0,0 +1,14 @@
+-- Conditional GET for the notes pages (see NoteController). Every note carries a revision and the time of
+-- its last write (epoch milliseconds); the owner carries one counter for the whole collection, bumped by
+-- NoteService together with each write, so a page can be validated with a single lookup on the unique
+-- email index instead of a scan over the user's notes. Not mapped on User: users are cached, these change
+-- constantly.
+ALTER TABLE notes ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE notes ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE users ADD COLUMN notes_version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN notes_updated_at INTEGER NOT NULL DEFAULT 0;
+
+-- Existing rows have not changed since... now, as far as any client can tell
+UPDATE notes SET updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER);
+UPDATE users SET notes_updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER);
@@ -0,0 +1,99 @@
+package com.berkdagli.sowa.config;
+
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.service.NoteService;
+import com.berkdagli.sowa.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "sowa.sqlite.performance-mode=true")
+class SqliteDataSourceConfigTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("perf-test.db"));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("sqliteWriterDataSource")
+    private HikariDataSource writer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Test
+    void writerRunsInWalModeWithPragmas() {
+        assertEquals("wal", jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("PRAGMA foreign_keys", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("PRAGMA synchronous", Integer.class)); // NORMAL
+        assertEquals(5000, jdbcTemplate.queryForObject("PRAGMA busy_timeout", Integer.class));
+        assertEquals(1, writer.getMaximumPoolSize());
+    }
+
+    @Test
+    void readOnlyTransactionsUseReadOnlyConnections() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Integer notes = readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT count(*) FROM notes", Integer.class));
+        assertEquals(0, notes);
+        assertThrows(DataAccessException.class, () -> readOnly.executeWithoutResult(status ->
+                jdbcTemplate.update("INSERT INTO users (username, email, password, role) VALUES ('r', 'r@example.com', 'x', 'USER')")));
+    }
+
+    @Test
+    void concurrentWritesAreSerializedWithoutBusyErrors() throws Exception {
+        userService.createUser("writer", "writer@example.com", "Password1!");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    NoteDto note = new NoteDto();
+                    note.setTitle("Note " + n);
+                    note.setContent("Content " + n);
+                    noteService.createNote(note, "writer@example.com");
+                    noteService.findPageByUserEmail("writer@example.com", null, null);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(200, jdbcTemplate.queryForObject("SELECT count(*) FROM notes", Integer.class));
+    }
+}
@@ -0,0 +1,101 @@
+package com.berkdagli.sowa.controller;
+
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.service.NoteService;
+import com.berkdagli.sowa.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminControllerTest {
+
+    private static final String EMAIL = "admin-view@example.com";
+    // longer than the dashboard's preview, and a formula a spreadsheet would evaluate
+    private static final String LONG_CONTENT = "=" + "x".repeat(300);
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("admin-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @BeforeEach
+    void notes() {
+        if (userService.findByEmail(EMAIL).isEmpty()) {
+            userService.createUser("admin-view", EMAIL, "Password1!");
+            // more than one flush worth of rows
+            for (int i = 0; i < 150; i++) {
+                NoteDto note = new NoteDto();
+                note.setTitle("Note " + i);
+                note.setContent(i == 0 ? LONG_CONTENT : "Content " + i);
+                noteService.createNote(note, EMAIL);
+            }
+        }
+    }
+
+    @Test
+    void exportHasTheFullContent() throws Exception {
+        MvcResult export = mockMvc.perform(get("/admin/stream").with(user("admin").roles("ADMIN")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(",\"Note 0\",\"'" + LONG_CONTENT + "\"\r\n")))
+                .andExpect(content().string(containsString(",\"Note 149\",\"Content 149\"\r\n")));
+    }
+
+    @Test
+    void allNotesPageRendersEveryRow() throws Exception {
+        mockMvc.perform(get("/admin/all").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Note 0")))
+                .andExpect(content().string(containsString("Note 149")))
+                .andExpect(content().string(containsString("name=\"_csrf\"")));
+    }
+
+    @Test
+    void csvQuotesEveryValue() {
+        assertEquals("\"Weekly sync\"", AdminController.csv("Weekly sync"));
+        assertEquals("\"a, \"\"b\"\"\r\nc\"", AdminController.csv("a, \"b\"\r\nc"));
+        assertEquals("\"\"", AdminController.csv(""));
+    }
+
+    @Test
+    void csvDefusesSpreadsheetFormulas() {
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\")\"", AdminController.csv("=HYPERLINK(\"http://x\")"));
+        assertEquals("\"'+1\"", AdminController.csv("+1"));
+        assertEquals("\"'@SUM(A1)\"", AdminController.csv("@SUM(A1)"));
+    }
+}
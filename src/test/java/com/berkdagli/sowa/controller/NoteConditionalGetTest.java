@@ -0,0 +1,137 @@
+package com.berkdagli.sowa.controller;
+
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.metrics.QueryBudget;
+import com.berkdagli.sowa.service.NoteService;
+import com.berkdagli.sowa.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "sowa.session.store=SERVLET")
+@AutoConfigureMockMvc
+class NoteConditionalGetTest {
+
+    private static final String EMAIL = "etag@example.com";
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("etag-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private NoteService noteService;
+
+    // the session holds the CSRF token rendered into the pages, so it is part of the validator
+    private final MockHttpSession session = new MockHttpSession();
+
+    @BeforeEach
+    void notes() {
+        if (userService.findByEmail(EMAIL).isEmpty()) {
+            userService.createUser("etag", EMAIL, "Password1!");
+            noteService.createNote(note("First"), EMAIL);
+        }
+    }
+
+    @Test
+    void listIsNotModifiedUntilANoteChanges() throws Exception {
+        String etag = mockMvc.perform(get("/notes").with(owner()).session(session))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/notes").with(owner()).session(session).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andExpect(QueryBudget.exactly(1));
+
+        noteService.createNote(note("Second"), EMAIL);
+
+        mockMvc.perform(get("/notes").with(owner()).session(session).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Second")))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void editPageIsNotModifiedUntilANoteChanges() throws Exception {
+        Long noteId = noteService.findPageByUserEmail(EMAIL, null, null).getNotes().get(0).getId();
+        String etag = mockMvc.perform(get("/notes/edit/{id}", noteId).with(owner()).session(session))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/notes/edit/{id}", noteId).with(owner()).session(session)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        noteService.updateNote(noteId, note("Edited"), EMAIL);
+
+        mockMvc.perform(get("/notes/edit/{id}", noteId).with(owner()).session(session)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Edited")));
+    }
+
+    @Test
+    void anotherSessionGetsAFreshPage() throws Exception {
+        String etag = mockMvc.perform(get("/notes").with(owner()).session(session))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/notes").with(owner()).session(new MockHttpSession())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void pagesWithAFlashMessageHaveNoValidators() throws Exception {
+        String etag = mockMvc.perform(get("/notes").with(owner()).session(session))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/notes").with(owner()).session(session).header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .flashAttr("successMessage", "Note created successfully!"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Note created successfully!")))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
+    private static RequestPostProcessor owner() {
+        return user(EMAIL).roles("USER");
+    }
+
+    private static NoteDto note(String title) {
+        NoteDto note = new NoteDto();
+        note.setTitle(title);
+        note.setContent(title + " content");
+        return note;
+    }
+}
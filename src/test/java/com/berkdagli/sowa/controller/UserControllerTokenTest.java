@@ -0,0 +1,98 @@
+package com.berkdagli.sowa.controller;
+
+import com.berkdagli.sowa.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerTokenTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("token-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void user() {
+        if (userService.findByEmail("api@example.com").isEmpty()) {
+            userService.createUser("api", "api@example.com", "Password1!");
+        }
+    }
+
+    @Test
+    void loginIssuesTokensWithoutCreatingASession() throws Exception {
+        MvcResult result = login();
+
+        assertNull(result.getRequest().getSession(false));
+        String body = result.getResponse().getContentAsString();
+        assertEquals("Bearer", JsonPath.read(body, "$.tokenType"));
+        assertNotNull(JsonPath.read(body, "$.accessToken"));
+        assertNotNull(JsonPath.read(body, "$.refreshToken"));
+    }
+
+    @Test
+    void protectedApiRequiresAValidBearerToken() throws Exception {
+        String accessToken = JsonPath.read(login().getResponse().getContentAsString(), "$.accessToken");
+
+        mockMvc.perform(get("/api/notes"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/notes").header("Authorization", "Bearer " + accessToken + "x"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("WWW-Authenticate", "Bearer"));
+
+        int status = mockMvc.perform(get("/api/notes").header("Authorization", "Bearer " + accessToken))
+                .andReturn().getResponse().getStatus();
+        assertNotEquals(401, status);
+        assertNotEquals(403, status);
+    }
+
+    @Test
+    void refreshTokenIsExchangedForANewPair() throws Exception {
+        String body = login().getResponse().getContentAsString();
+        String refreshToken = JsonPath.read(body, "$.refreshToken");
+        String accessToken = JsonPath.read(body, "$.accessToken");
+
+        mockMvc.perform(post("/api/token/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").isNotEmpty());
+
+        mockMvc.perform(post("/api/token/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + accessToken + "\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private MvcResult login() throws Exception {
+        return mockMvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"api@example.com\",\"password\":\"Password1!\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+}
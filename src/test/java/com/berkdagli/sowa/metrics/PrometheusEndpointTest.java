@@ -0,0 +1,58 @@
+package com.berkdagli.sowa.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PrometheusEndpointTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("metrics-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsPublicAndMetricsNeedAnAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(user("user").roles("USER")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void hotPathsArePublishedAsHistograms() throws Exception {
+        mockMvc.perform(get("/notes").with(user("metrics@example.com").roles("USER")));
+        mockMvc.perform(get("/login")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("sowa_security_filter_seconds_bucket{filter=\"rate-limit\""), scrape);
+        assertTrue(scrape.contains("sowa_security_filter_seconds_bucket{filter=\"suspicious-request\""));
+        assertTrue(scrape.contains("sowa_view_render_seconds_bucket{view=\"login\""));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket{"));
+        assertTrue(scrape.contains("sowa_password_hashing_seconds_bucket{"));
+    }
+}
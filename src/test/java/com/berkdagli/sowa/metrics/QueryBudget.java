@@ -0,0 +1,45 @@
+package com.berkdagli.sowa.metrics;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc expectations on the JDBC statements a request executed, as collected by
+ * {@link RequestQueryMetricsFilter}:
+ * <pre>
+ * mockMvc.perform(get("/notes")).andExpect(QueryBudget.atMost(2));
+ * </pre>
+ * A request over budget usually means a query moved into a loop (N+1) or a cache stopped working.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            RequestQueryStatistics statistics = statistics(result.getRequest().getAttribute(
+                    RequestQueryStatistics.ATTRIBUTE));
+            assertTrue(statistics.statements() <= statements, () -> result.getRequest().getMethod() + " "
+                    + result.getRequest().getRequestURI() + " executed " + statistics
+                    + ", budget is " + statements);
+        };
+    }
+
+    public static ResultMatcher exactly(int statements) {
+        return result -> {
+            RequestQueryStatistics statistics = statistics(result.getRequest().getAttribute(
+                    RequestQueryStatistics.ATTRIBUTE));
+            assertTrue(statistics.statements() == statements, () -> result.getRequest().getMethod() + " "
+                    + result.getRequest().getRequestURI() + " executed " + statistics
+                    + ", expected " + statements);
+        };
+    }
+
+    private static RequestQueryStatistics statistics(Object attribute) {
+        assertNotNull(attribute, "No query statistics on the request, is sowa.query-metrics.enabled off?");
+        return (RequestQueryStatistics) attribute;
+    }
+}
@@ -0,0 +1,127 @@
+package com.berkdagli.sowa.metrics;
+
+import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.service.NoteService;
+import com.berkdagli.sowa.service.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The budgets are for the requests alone: the servlet session store keeps session writes out of them.
+// Note writes go through the batcher so their statements run on its thread.
+@SpringBootTest(properties = {"sowa.session.store=SERVLET", "sowa.notes.write-batching.enabled=true"})
+@AutoConfigureMockMvc
+class RequestQueryMetricsTest {
+
+    private static final String EMAIL = "queries@example.com";
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("queries-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void notes() {
+        if (userService.findByEmail(EMAIL).isEmpty()) {
+            userService.createUser("queries", EMAIL, "Password1!");
+            for (int i = 0; i < 30; i++) {
+                NoteDto note = new NoteDto();
+                note.setTitle("Note " + i);
+                note.setContent("Content " + i);
+                noteService.createNote(note, EMAIL);
+            }
+        }
+    }
+
+    @Test
+    void notesPagesStayWithinTheirQueryBudget() throws Exception {
+        Long noteId = noteService.findPageByUserEmail(EMAIL, null, null).getNotes().get(0).getId();
+        // the first request loads the user into the cache, the budgets are for the steady state
+        mockMvc.perform(get("/notes").with(user(EMAIL).roles("USER"))).andExpect(status().isOk());
+
+        mockMvc.perform(get("/notes").with(user(EMAIL).roles("USER")))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.exactly(2)); // notes version, then the page
+        // the note comes with its owner in one join, not a second select
+        mockMvc.perform(get("/notes/edit/{id}", noteId).with(user(EMAIL).roles("USER")))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.exactly(2));
+    }
+
+    @Test
+    void noteWritesCountTheStatementsRunByTheBatcher() throws Exception {
+        Long noteId = noteService.findPageByUserEmail(EMAIL, null, null).getNotes().get(0).getId();
+        mockMvc.perform(get("/notes").with(user(EMAIL).roles("USER"))).andExpect(status().isOk());
+
+        mockMvc.perform(post("/notes/update/{id}", noteId).with(user(EMAIL).roles("USER")).with(csrf())
+                        .param("title", "Updated")
+                        .param("content", "Updated content"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(QueryBudget.exactly(2)); // the update, then the owner's notes version
+    }
+
+    @Test
+    void statementsPerRequestArePublished() throws Exception {
+        mockMvc.perform(get("/notes").with(user(EMAIL).roles("USER"))).andExpect(status().isOk());
+
+        DistributionSummary queries = meterRegistry.find("sowa.http.queries").tag("uri", "/notes").summary();
+        assertNotNull(queries);
+        assertTrue(queries.count() > 0);
+        assertNotNull(meterRegistry.find("sowa.http.queries.time").tag("uri", "/notes").timer());
+    }
+
+    @Test
+    void slowQueryLogShowsParameterShapesNotValues() throws Exception {
+        QueryInfo query = new QueryInfo("UPDATE notes SET title = ?, content = ? WHERE id = ?");
+        List<ParameterSetOperation> parameters = List.of(
+                new ParameterSetOperation(PreparedStatement.class.getMethod("setString", int.class, String.class),
+                        new Object[]{1, "secret title"}),
+                new ParameterSetOperation(PreparedStatement.class.getMethod("setNull", int.class, int.class),
+                        new Object[]{2, Types.VARCHAR}),
+                new ParameterSetOperation(PreparedStatement.class.getMethod("setLong", int.class, long.class),
+                        new Object[]{3, 42L}));
+        query.getParametersList().add(parameters);
+
+        assertEquals("[String(12), null, Long]", QueryMetricsListener.parameterShapes(query));
+
+        query.getParametersList().add(parameters);
+        assertEquals("[String(12), null, Long] x2", QueryMetricsListener.parameterShapes(query));
+    }
+}
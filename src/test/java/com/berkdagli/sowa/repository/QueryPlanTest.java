@@ -0,0 +1,162 @@
+package com.berkdagli.sowa.repository;
+
+import com.berkdagli.sowa.model.Note;
+import com.berkdagli.sowa.model.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every declared repository method against a migrated database, captures the SQL Hibernate
+ * sends, and checks its {@code EXPLAIN QUERY PLAN}. A full table scan, or a sort where a keyset page
+ * should come straight from an index, fails the build. New repository methods have to be added here.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.berkdagli.sowa.repository.QueryPlanTest$CapturingStatementInspector")
+class QueryPlanTest {
+
+    // Deliberate full scans: the streamed admin page and the export read every note, findByUsername is not
+    // used by the application
+    private static final Set<String> FULL_SCAN_ALLOWED = Set.of("streamAdminRows", "streamExportRows",
+            "findByUsername");
+
+    // Keyset pages must be read in index order, never sorted afterwards
+    private static final Set<String> SORT_FORBIDDEN = Set.of("findSummariesBefore", "findSummariesAfter",
+            "findAdminRowsAfter");
+
+    private static final Queue<String> captured = new ConcurrentLinkedQueue<>();
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("plan-test.db"));
+    }
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<String, List<String>> plans = new LinkedHashMap<>();
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        User owner = userRepository.save(new User("planner", "planner@example.com", "password", "USER"));
+        User other = userRepository.save(new User("other", "other@example.com", "password", "USER"));
+        Note note = noteRepository.save(new Note("Plan", "Query plan note", owner));
+        Long userId = owner.getId();
+        Long noteId = note.getId();
+
+        explain("findByUserId", () -> noteRepository.findByUserId(userId));
+        explain("findSummariesBefore", () -> noteRepository.findSummariesBefore(userId, Long.MAX_VALUE, Limit.of(20)));
+        explain("findSummariesAfter", () -> noteRepository.findSummariesAfter(userId, 0L, Limit.of(20)));
+        explain("search", () -> noteRepository.search(userId, "\"plan\"", 20, 0));
+        explain("findByIdAndUserEmail", () -> noteRepository.findByIdAndUserEmail(noteId, "planner@example.com"));
+        explain("findOwnerEmailById", () -> noteRepository.findOwnerEmailById(noteId));
+        explain("findAdminRowsAfter", () -> noteRepository.findAdminRowsAfter(0L, Limit.of(50)));
+        explain("streamAdminRows", () -> tx.executeWithoutResult(status -> {
+            try (Stream<?> rows = noteRepository.streamAdminRows()) {
+                rows.forEach(row -> { });
+            }
+        }));
+        explain("streamExportRows", () -> tx.executeWithoutResult(status -> {
+            try (Stream<?> rows = noteRepository.streamExportRows()) {
+                rows.forEach(row -> { });
+            }
+        }));
+        explain("updateByIdAndUserId", () -> tx.executeWithoutResult(status ->
+                noteRepository.updateByIdAndUserId(noteId, userId, "Plan", "Updated", 0L)));
+        explain("deleteByIdAndUserId", () -> tx.executeWithoutResult(status ->
+                noteRepository.deleteByIdAndUserId(noteId, userId)));
+
+        explain("findByEmail", () -> userRepository.findByEmail("nobody@example.com"));
+        explain("findByUsername", () -> userRepository.findByUsername("planner"));
+        explain("updateRoleByEmail", () -> userRepository.updateRoleByEmail("planner@example.com", "ADMIN"));
+        explain("updatePasswordByEmail", () -> userRepository.updatePasswordByEmail("planner@example.com", "{bcrypt}x"));
+        explain("findNotesVersionByEmail", () -> userRepository.findNotesVersionByEmail("planner@example.com"));
+        explain("incrementNotesVersion", () -> tx.executeWithoutResult(status ->
+                userRepository.incrementNotesVersion(userId, 0L)));
+        explain("save", () -> userRepository.save(other));
+        explain("delete", () -> userRepository.delete(other));
+
+        assertEquals(declaredMethods(NoteRepository.class, UserRepository.class), new TreeSet<>(plans.keySet()),
+                "every repository method needs a query plan check");
+
+        List<String> violations = new ArrayList<>();
+        plans.forEach((method, lines) -> lines.forEach(line -> {
+            String detail = line.substring(line.lastIndexOf(" :: ") + 4);
+            boolean fullScan = detail.startsWith("SCAN ") && !detail.contains("VIRTUAL TABLE");
+            if (fullScan && !FULL_SCAN_ALLOWED.contains(method)
+                    || detail.startsWith("USE TEMP B-TREE") && SORT_FORBIDDEN.contains(method)) {
+                violations.add(method + " -> " + line);
+            }
+        }));
+        assertTrue(violations.isEmpty(), "query plan regressions:\n" + String.join("\n", violations));
+    }
+
+    private void explain(String method, Runnable call) {
+        captured.clear();
+        call.run();
+        List<String> lines = new ArrayList<>();
+        for (String sql : captured) {
+            String verb = sql.stripLeading().toLowerCase(Locale.ROOT);
+            if (verb.startsWith("select") || verb.startsWith("update") || verb.startsWith("delete")) {
+                for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN QUERY PLAN " + sql)) {
+                    lines.add(sql + " :: " + row.get("detail"));
+                }
+            }
+        }
+        plans.computeIfAbsent(method, m -> new ArrayList<>()).addAll(lines);
+    }
+
+    private static Set<String> declaredMethods(Class<?>... repositories) {
+        return Arrays.stream(repositories)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .filter(method -> !method.isBridge() && !method.isSynthetic())
+                .map(Method::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            captured.add(sql);
+            return sql;
+        }
+    }
+}
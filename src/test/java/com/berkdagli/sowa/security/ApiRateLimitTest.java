@@ -0,0 +1,73 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// One PRINCIPAL policy on the API; both users call from the same address
+@SpringBootTest(properties = {
+        "sowa.rate-limit.policies[0].name=api",
+        "sowa.rate-limit.policies[0].patterns=/api/notes",
+        "sowa.rate-limit.policies[0].key=PRINCIPAL",
+        "sowa.rate-limit.policies[0].algorithm=SLIDING_WINDOW_COUNTER",
+        "sowa.rate-limit.policies[0].limit=2",
+        "sowa.rate-limit.policies[0].period=1m"
+})
+@AutoConfigureMockMvc
+class ApiRateLimitTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("api-rate-limit-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void authenticatedApiRequestsAreLimitedPerPrincipal() throws Exception {
+        String alice = accessToken("alice");
+        String bob = accessToken("bob");
+
+        assertNotEquals(429, statusFor(alice));
+        assertNotEquals(429, statusFor(alice));
+        assertEquals(429, statusFor(alice));
+        // same address, different user: a budget of its own
+        assertNotEquals(429, statusFor(bob));
+    }
+
+    private int statusFor(String accessToken) throws Exception {
+        return mockMvc.perform(get("/api/notes").header("Authorization", "Bearer " + accessToken))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private String accessToken(String name) throws Exception {
+        userService.createUser(name, name + "@example.com", "Password1!");
+        String body = mockMvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + name + "@example.com\",\"password\":\"Password1!\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.accessToken");
+    }
+}
@@ -1,5 +1,6 @@
 package com.berkdagli.sowa.security;
 
+import com.berkdagli.sowa.security.ratelimit.RateLimitProperties;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -7,6 +8,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 
 import jakarta.servlet.ServletException;
 import java.io.IOException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -61,4 +63,37 @@ class RateLimitFilterTest {
 
         assertEquals(200, response2.getStatus(), "Request from different IP should succeed");
     }
+
+    @Test
+    void testRoutePolicyAndExcludedPaths() throws ServletException, IOException {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setExcludedPaths(List.of("/css/**"));
+        RateLimitProperties.Policy login = new RateLimitProperties.Policy();
+        login.setName("login");
+        login.setPatterns(List.of("/login"));
+        login.setMethods(List.of("POST"));
+        login.setAlgorithm(RateLimitProperties.Algorithm.SLIDING_WINDOW_COUNTER);
+        login.setLimit(3);
+        properties.setPolicies(List.of(login));
+        RateLimitFilter filter = new RateLimitFilter(properties);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send(filter, "POST", "/login"), "Login attempt " + i + " should succeed");
+        }
+        assertEquals(429, send(filter, "POST", "/login"), "Fourth login attempt should be rate limited");
+
+        // other routes use the default policy, static assets are never limited
+        assertEquals(200, send(filter, "GET", "/login"));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(200, send(filter, "GET", "/css/style.css"));
+        }
+    }
+
+    private int send(RateLimitFilter filter, String method, String uri) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
 }
@@ -0,0 +1,73 @@
+package com.berkdagli.sowa.security;
+
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
+import com.berkdagli.sowa.security.inspection.SuspiciousRequestProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SuspiciousRequestFilterTest {
+
+    // a handler that reads none of the request's parameters
+    private static final FilterChain READ_NOTHING = (request, response) -> { };
+
+    private final SecurityEventPublisher securityEvents = mock(SecurityEventPublisher.class);
+
+    @Test
+    void eagerIsTheDefault() {
+        assertEquals(SuspiciousRequestProperties.Mode.EAGER, new SuspiciousRequestProperties().getMode());
+    }
+
+    @Test
+    void unreadParameterIsFlaggedInEveryMode() throws Exception {
+        for (SuspiciousRequestProperties.Mode mode : SuspiciousRequestProperties.Mode.values()) {
+            reset(securityEvents);
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notes");
+            request.setQueryString("q=1%20union%20select%20password");
+            request.addParameter("q", "1 union select password");
+
+            filter(mode).doFilter(request, new MockHttpServletResponse(), READ_NOTHING);
+
+            verify(securityEvents, description(mode.name())).publish(eq(SecurityEventType.SUSPICIOUS_INPUT),
+                    any(), eq("union select"), any(Object[].class));
+        }
+    }
+
+    @Test
+    void parameterReadByTheHandlerIsFlaggedOnce() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/notes");
+        request.addParameter("content", "<script>alert(1)</script>");
+
+        filter(SuspiciousRequestProperties.Mode.STREAMING).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> req.getParameter("content"));
+
+        verify(securityEvents, times(1)).publish(eq(SecurityEventType.SUSPICIOUS_INPUT), any(), eq("<script>"),
+                any(Object[].class));
+    }
+
+    @Test
+    void rejectedRequestIsNotInspectedAfterwards() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notes");
+        request.setQueryString("q=1%20union%20select%20password");
+        request.addParameter("q", "1 union select password");
+
+        filter(SuspiciousRequestProperties.Mode.STREAMING).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).sendError(HttpServletResponse.SC_FORBIDDEN));
+
+        verifyNoInteractions(securityEvents);
+    }
+
+    private SuspiciousRequestFilter filter(SuspiciousRequestProperties.Mode mode) {
+        SuspiciousRequestProperties properties = new SuspiciousRequestProperties();
+        properties.setMode(mode);
+        return new SuspiciousRequestFilter(properties, new DefaultResourceLoader(), securityEvents);
+    }
+}
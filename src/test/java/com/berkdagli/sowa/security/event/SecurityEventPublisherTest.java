@@ -0,0 +1,119 @@
+package com.berkdagli.sowa.security.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityEventPublisherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SecurityEventPublisher publisher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.destroy();
+    }
+
+    private SecurityEventPublisher publisher(SecurityEventProperties properties) {
+        publisher = new SecurityEventPublisher(properties);
+        publisher.bindTo(registry);
+        return publisher;
+    }
+
+    private double counter(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    @Test
+    void repeatsWithinWindowAreAggregated() {
+        SecurityEventPublisher publisher = publisher(new SecurityEventProperties());
+        for (int i = 0; i < 100; i++) {
+            publisher.publish(SecurityEventType.LOGIN_FAILURE, "10.0.0.1", "victim@example.com",
+                    "victim@example.com", "10.0.0.1", "curl", "Bad credentials");
+        }
+        publisher.publish(SecurityEventType.LOGIN_FAILURE, "10.0.0.2", "victim@example.com",
+                "victim@example.com", "10.0.0.2", "curl", "Bad credentials");
+
+        assertEquals(101, counter("sowa.security.events.published"));
+        assertEquals(99, counter("sowa.security.events.aggregated"));
+        assertEquals(0, counter("sowa.security.events.dropped"));
+    }
+
+    @Test
+    void concurrentRepeatsOpenOneWindow() throws Exception {
+        SecurityEventPublisher publisher = publisher(new SecurityEventProperties());
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        publisher.publish(SecurityEventType.LOGIN_FAILURE, "10.0.0.1", "victim@example.com",
+                                "victim@example.com", "10.0.0.1", "curl", "Bad credentials");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(7999, counter("sowa.security.events.aggregated"), "every repeat but the first is counted");
+    }
+
+    @Test
+    void eventsAreWrittenWhenTheAggregationTableIsFull() throws InterruptedException {
+        SecurityEventProperties properties = new SecurityEventProperties();
+        properties.setMaxTrackedKeys(10);
+        SecurityEventPublisher publisher = publisher(properties);
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(SecurityEventType.UNAUTHENTICATED, "10.0.0." + i, "/noise", "/noise", "10.0.0." + i, "");
+        }
+
+        publisher.publish(SecurityEventType.LOGIN_FAILURE, "10.0.1.1", "victim@example.com",
+                "victim@example.com", "10.0.1.1", "curl", "Bad credentials");
+        publisher.destroy();
+
+        assertEquals(1, counter("sowa.security.events.unaggregated"));
+        assertEquals(0, counter("sowa.security.events.dropped"));
+        assertEquals(11, counter("sowa.security.events.written"));
+    }
+
+    @Test
+    void distinctEventsAboveThresholdAreSampled() {
+        SecurityEventProperties properties = new SecurityEventProperties();
+        properties.setSampleThresholdPerSecond(10);
+        properties.setSampleRate(10);
+        SecurityEventPublisher publisher = publisher(properties);
+
+        for (int i = 0; i < 110; i++) {
+            publisher.publish(SecurityEventType.UNAUTHENTICATED, "10.0.0." + i, "/notes", "/notes", "10.0.0." + i, "");
+        }
+
+        // 10 pass freely, then 1 in 10 (fewer are sampled out if the loop straddles a second)
+        double sampled = counter("sowa.security.events.sampled");
+        assertTrue(sampled > 0 && sampled <= 90, "sampled " + sampled);
+    }
+
+    @Test
+    void excerptTruncatesLongValues() {
+        SecurityEventPublisher publisher = publisher(new SecurityEventProperties());
+        assertEquals(203, publisher.excerpt("x".repeat(10_000)).length());
+        assertEquals("short", publisher.excerpt("short"));
+    }
+}
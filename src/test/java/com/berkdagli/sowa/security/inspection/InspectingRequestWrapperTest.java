@@ -0,0 +1,98 @@
+package com.berkdagli.sowa.security.inspection;
+
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InspectingRequestWrapperTest {
+
+    private final SignatureScanner scanner = SignatureScanner.compile(
+            new SuspiciousRequestProperties().getSignatures());
+    private final List<String> reports = new ArrayList<>();
+
+    private InspectingRequestWrapper wrap(MockHttpServletRequest request, long maxInspectedLength) {
+        return new InspectingRequestWrapper(request, scanner, maxInspectedLength,
+                (r, source, signature, value) -> reports.add(source + "=" + signature));
+    }
+
+    @Test
+    void inspectsParametersOnFirstAccessOnly() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/notes");
+        request.addParameter("title", "hello");
+        request.addParameter("content", "1 UNION SELECT password");
+        InspectingRequestWrapper wrapper = wrap(request, 1024);
+
+        assertTrue(reports.isEmpty(), "nothing is inspected before downstream reads it");
+        wrapper.getParameter("title");
+        wrapper.getParameter("content");
+        wrapper.getParameterValues("content");
+        wrapper.getParameterMap();
+
+        assertEquals(List.of("content=union select"), reports);
+    }
+
+    @Test
+    void inspectsUnreadParametersAfterwards() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notes");
+        request.addParameter("page", "1");
+        request.addParameter("q", "x'; DROP TABLE notes");
+        InspectingRequestWrapper wrapper = wrap(request, 1024);
+
+        wrapper.getParameter("page");
+        wrapper.inspectUnreadParameters();
+        wrapper.inspectUnreadParameters();
+
+        assertEquals(List.of("q=drop table"), reports);
+    }
+
+    @Test
+    void leavesAnUnreadFormBodyUnparsed() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/notes") {
+            @Override
+            public Map<String, String[]> getParameterMap() {
+                throw new AssertionError("the form body was parsed");
+            }
+        };
+        request.setContentType("application/x-www-form-urlencoded");
+        request.setQueryString("page=1&q=x%27%3B%20DROP%20TABLE%20notes");
+        InspectingRequestWrapper wrapper = wrap(request, 1024);
+
+        wrapper.inspectUnreadParameters();
+
+        assertEquals(List.of("q=drop table"), reports);
+    }
+
+    @Test
+    void scansStreamedBodyAcrossReads() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/register");
+        request.setContent("{\"username\":\"x<script>\"}".getBytes(StandardCharsets.UTF_8));
+        InspectingRequestWrapper wrapper = wrap(request, 1024);
+
+        ServletInputStream in = wrapper.getInputStream();
+        byte[] buffer = new byte[4];
+        while (in.read(buffer, 0, buffer.length) > 0) {
+            // consume in small chunks so the signature spans several reads
+        }
+
+        assertEquals(List.of(InspectingRequestWrapper.BODY + "=<script>"), reports);
+    }
+
+    @Test
+    void stopsInspectingAfterLimit() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/notes");
+        request.addParameter("content", "a".repeat(100) + "drop table");
+        InspectingRequestWrapper wrapper = wrap(request, 100);
+
+        wrapper.getParameter("content");
+
+        assertTrue(reports.isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.berkdagli.sowa.security.inspection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureScannerTest {
+
+    private final SignatureScanner scanner = SignatureScanner.compile(
+            new SuspiciousRequestProperties().getSignatures());
+
+    @Test
+    void matchesIgnoringCase() {
+        assertEquals("<script>", scanner.signature(scanner.find("hello <SCRIPT>alert(1)</script>")));
+        assertEquals("union select", scanner.signature(scanner.find("1 UnIoN SeLeCt password FROM users")));
+        assertEquals("exec(", scanner.signature(scanner.find("EXEC(xp_cmdshell)")));
+        assertEquals(SignatureScanner.NO_MATCH, scanner.find("a perfectly normal note about tables"));
+    }
+
+    @Test
+    void findsSignaturesThatOverlapPartialMatches() {
+        SignatureScanner overlapping = SignatureScanner.compile(List.of("he", "she", "hers", "aab"));
+        assertEquals("she", overlapping.signature(overlapping.find("ushers")));
+        assertEquals("aab", overlapping.signature(overlapping.find("aaab")));
+        assertEquals(SignatureScanner.NO_MATCH, overlapping.find("ahoy"));
+    }
+
+    @Test
+    void advancesOneCharacterAtATime() {
+        int state = scanner.start();
+        for (char c : "x DROP ".toCharArray()) {
+            state = scanner.advance(state, c);
+            assertEquals(SignatureScanner.NO_MATCH, scanner.matchAt(state));
+        }
+        for (char c : "TABLE".toCharArray()) {
+            state = scanner.advance(state, c);
+        }
+        assertEquals("drop table", scanner.signature(scanner.matchAt(state)));
+    }
+
+    @Test
+    void foldsNonAsciiCase() {
+        SignatureScanner turkish = SignatureScanner.compile(List.of("şifre"));
+        assertNotEquals(SignatureScanner.NO_MATCH, turkish.find("yeni ŞİFRE"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.berkdagli.sowa.security.jwt;
+
+import com.berkdagli.sowa.dto.UserAccount;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final UserAccount user = new UserAccount(1L, "alice", "alice@example.com", "hash", "ADMIN");
+
+    @Test
+    void accessTokenAuthenticatesWithRoleFromClaims() {
+        JwtService jwt = new JwtService(properties(SECRET));
+
+        UsernamePasswordAuthenticationToken auth = jwt.authenticate(jwt.issue(user).accessToken());
+
+        assertTrue(auth.isAuthenticated());
+        assertEquals("alice@example.com", auth.getName());
+        assertEquals(List.of("ROLE_ADMIN"), auth.getAuthorities().stream().map(Object::toString).toList());
+    }
+
+    @Test
+    void tokensAreNotInterchangeable() {
+        JwtService jwt = new JwtService(properties(SECRET));
+        JwtService.TokenPair tokens = jwt.issue(user);
+
+        assertThrows(BadCredentialsException.class, () -> jwt.authenticate(tokens.refreshToken()));
+        assertThrows(BadCredentialsException.class, () -> jwt.refreshTokenSubject(tokens.accessToken()));
+        assertEquals("alice@example.com", jwt.refreshTokenSubject(tokens.refreshToken()));
+    }
+
+    @Test
+    void expiredAccessTokenIsRejectedAfterClockSkew() {
+        Instant issued = Instant.parse("2025-01-01T00:00:00Z");
+        JwtProperties properties = properties(SECRET);
+        String token = new JwtService(properties, Clock.fixed(issued, ZoneOffset.UTC)).issue(user).accessToken();
+
+        Instant withinSkew = issued.plus(properties.getAccessTokenTtl()).plusSeconds(10);
+        assertDoesNotThrow(() -> new JwtService(properties, Clock.fixed(withinSkew, ZoneOffset.UTC))
+                .authenticate(token));
+
+        Instant expired = issued.plus(properties.getAccessTokenTtl()).plus(properties.getClockSkew()).plusSeconds(1);
+        assertThrows(BadCredentialsException.class,
+                () -> new JwtService(properties, Clock.fixed(expired, ZoneOffset.UTC)).authenticate(token));
+    }
+
+    @Test
+    void tokensSignedWithAnotherKeyOrTamperedAreRejected() {
+        JwtService jwt = new JwtService(properties(SECRET));
+        String foreign = new JwtService(properties("")).issue(user).accessToken();
+        assertThrows(BadCredentialsException.class, () -> jwt.authenticate(foreign));
+
+        String token = jwt.issue(user).accessToken();
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(parts[1])).replace("ADMIN", "SUPER").getBytes());
+        assertThrows(BadCredentialsException.class,
+                () -> jwt.authenticate(parts[0] + "." + forgedPayload + "." + parts[2]));
+        assertThrows(BadCredentialsException.class, () -> jwt.authenticate("not-a-token"));
+    }
+
+    @Test
+    void tokensFromAnotherIssuerAreRejected() {
+        JwtProperties other = properties(SECRET);
+        other.setIssuer("someone-else");
+        String token = new JwtService(other).issue(user).accessToken();
+
+        assertThrows(BadCredentialsException.class, () -> new JwtService(properties(SECRET)).authenticate(token));
+    }
+
+    private static JwtProperties properties(String secret) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(secret);
+        properties.setAccessTokenTtl(Duration.ofMinutes(15));
+        return properties;
+    }
+}
@@ -0,0 +1,84 @@
+package com.berkdagli.sowa.security.password;
+
+import com.berkdagli.sowa.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.unauthenticated;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BestEffortUpgradeAuthenticationProviderTest {
+
+    private static final String EMAIL = "saturated@example.com";
+    private static final String PASSWORD = "Password1!";
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("upgrade-test.db"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @MockitoSpyBean
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void formLoginSucceedsWhenTheHashUpgradeIsRejected() throws Exception {
+        // Arrange: an outdated hash and a hashing pool with no room for the rehash
+        userService.createUser("saturated", EMAIL, PASSWORD);
+        String stored = userService.findByEmail(EMAIL).orElseThrow().password();
+        clearInvocations(passwordEncoder);
+        doReturn(true).when(passwordEncoder).upgradeEncoding(stored);
+        doThrow(new PasswordHashingRejectedException("Password hashing is at capacity, try again shortly"))
+                .when(passwordEncoder).encode(PASSWORD);
+
+        // Act / Assert
+        mockMvc.perform(formLogin("/login").userParameter("email").user(EMAIL).password(PASSWORD))
+                .andExpect(authenticated().withUsername(EMAIL))
+                .andExpect(redirectedUrl("/hello"));
+
+        verify(passwordEncoder).encode(PASSWORD);
+        assertEquals(stored, userService.findByEmail(EMAIL).orElseThrow().password(), "the old hash is kept");
+    }
+
+    @Test
+    void formLoginAnswers503WhenTheCheckItselfIsRejected() throws Exception {
+        // Arrange
+        userService.createUser("rejected", "rejected@example.com", PASSWORD);
+        doThrow(new PasswordHashingRejectedException("Password hashing is at capacity, try again shortly"))
+                .when(passwordEncoder).matches(eq(PASSWORD), anyString());
+
+        // Act / Assert: the 503 itself, not a forward to the login-protected error page
+        mockMvc.perform(formLogin("/login").userParameter("email").user("rejected@example.com").password(PASSWORD))
+                .andExpect(unauthenticated())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(content().string("Password hashing is at capacity, try again shortly"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.berkdagli.sowa.security.password;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) {
+            encoder.destroy();
+        }
+    }
+
+    private BoundedPasswordEncoder encoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        encoder = new BoundedPasswordEncoder(delegate, properties, registry);
+        return encoder;
+    }
+
+    @Test
+    void hashesOnTheHashingPoolAndRecordsTimings() {
+        encoder(new BCryptPasswordEncoder(4), 2, 4);
+
+        String hash = encoder.encode("Password1!");
+
+        assertTrue(encoder.matches("Password1!", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, registry.get("sowa.password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get("sowa.password.hashing").tag("operation", "matches").timer().count());
+        assertEquals(3, registry.get("sowa.password.hashing.queue.wait").timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void rejectsOnceThreadsAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        encoder(slow, 1, 1);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (registry.get("sowa.password.hashing.queue.size").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.matches("c", "hash"));
+        assertEquals(1, registry.get("sowa.password.hashing.rejected").tag("operation", "matches").counter().count());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void calibrationPicksTheStrongestCostWithinTarget() {
+        long ms = 1_000_000;
+        assertEquals(12, BCryptStrengthCalibrator.strengthFor(60 * ms, 250 * ms, 10, 15));
+        assertEquals(10, BCryptStrengthCalibrator.strengthFor(400 * ms, 250 * ms, 10, 15));
+        assertEquals(15, BCryptStrengthCalibrator.strengthFor(1 * ms, 250 * ms, 10, 15));
+    }
+}
@@ -0,0 +1,60 @@
+package com.berkdagli.sowa.security.password;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncodersTest {
+
+    private static PasswordEncoder encoder(String algorithm, int bcryptStrength) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setAlgorithm(algorithm);
+        properties.setArgon2MemoryKib(1024);
+        properties.setArgon2Iterations(1);
+        properties.setScryptCpuCost(1024);
+        return PasswordEncoders.delegating(properties, bcryptStrength);
+    }
+
+    @Test
+    void unprefixedLegacyHashesVerifyAndAreUpgraded() {
+        String legacy = new BCryptPasswordEncoder(4).encode("Password1!");
+        PasswordEncoder encoder = encoder(PasswordEncoders.BCRYPT, 4);
+
+        assertTrue(encoder.matches("Password1!", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.encode("Password1!").startsWith("{bcrypt}"));
+    }
+
+    @Test
+    void weakerBcryptCostIsUpgradedButNotDowngraded() {
+        String cost4 = encoder(PasswordEncoders.BCRYPT, 4).encode("Password1!");
+        String cost5 = encoder(PasswordEncoders.BCRYPT, 5).encode("Password1!");
+        PasswordEncoder current = encoder(PasswordEncoders.BCRYPT, 5);
+
+        assertTrue(current.upgradeEncoding(cost4));
+        assertFalse(current.upgradeEncoding(cost5));
+        assertFalse(encoder(PasswordEncoders.BCRYPT, 4).upgradeEncoding(cost5));
+    }
+
+    @Test
+    void switchingAlgorithmKeepsOldHashesVerifying() {
+        String bcrypt = encoder(PasswordEncoders.BCRYPT, 4).encode("Password1!");
+        PasswordEncoder argon2 = encoder(PasswordEncoders.ARGON2, 4);
+        PasswordEncoder scrypt = encoder(PasswordEncoders.SCRYPT, 4);
+
+        assertTrue(argon2.matches("Password1!", bcrypt));
+        assertTrue(argon2.upgradeEncoding(bcrypt));
+        String upgraded = argon2.encode("Password1!");
+        assertTrue(upgraded.startsWith("{argon2}"));
+        assertTrue(scrypt.matches("Password1!", upgraded));
+        assertFalse(argon2.upgradeEncoding(upgraded));
+        assertTrue(scrypt.encode("Password1!").startsWith("{scrypt}"));
+    }
+
+    @Test
+    void unknownAlgorithmIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> encoder("md5", 4));
+    }
+}
@@ -0,0 +1,206 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitStoreTest {
+
+    private static final long MINUTE = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mappedFileIsSharedBetweenInstances() {
+        Path file = tempDir.resolve("rate-limit.shm");
+        try (MappedFileRateLimitStore nodeA = new MappedFileRateLimitStore(file, 1024);
+                MappedFileRateLimitStore nodeB = new MappedFileRateLimitStore(file, 1024)) {
+            assertEquals(1, nodeA.addAndGet("login:1.1.1.1", 100, MINUTE, 1));
+            assertEquals(2, nodeB.addAndGet("login:1.1.1.1", 100, MINUTE, 1));
+            assertEquals(2, nodeA.get("login:1.1.1.1", 100, MINUTE));
+
+            // the next window starts from zero but the previous one stays readable
+            assertEquals(1, nodeB.addAndGet("login:1.1.1.1", 101, MINUTE, 1));
+            assertEquals(2, nodeA.get("login:1.1.1.1", 100, MINUTE));
+            assertEquals(0, nodeA.get("login:2.2.2.2", 101, MINUTE));
+        }
+    }
+
+    @Test
+    void batchingReconcilesNodesOnSync() {
+        InMemoryRateLimitStore shared = new InMemoryRateLimitStore();
+        BatchingRateLimitStore nodeA = new BatchingRateLimitStore(shared, Duration.ofHours(1));
+        BatchingRateLimitStore nodeB = new BatchingRateLimitStore(shared, Duration.ofHours(1));
+
+        nodeA.addAndGet("k", 7, MINUTE, 3);
+        nodeB.addAndGet("k", 7, MINUTE, 2);
+        assertEquals(0, shared.get("k", 7, MINUTE), "nothing reaches the shared store before a sync");
+        assertEquals(3, nodeA.get("k", 7, MINUTE));
+
+        nodeA.sync();
+        nodeB.sync();
+        nodeA.sync();
+
+        assertEquals(5, shared.get("k", 7, MINUTE));
+        assertEquals(5, nodeA.get("k", 7, MINUTE));
+        assertEquals(5, nodeB.get("k", 7, MINUTE));
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void storeBackedLimiterCountsAcrossNodes() {
+        InMemoryRateLimitStore shared = new InMemoryRateLimitStore();
+        StoreBackedRateLimiter nodeA = new StoreBackedRateLimiter(shared, "login", 3, Duration.ofMinutes(1), () -> 0);
+        StoreBackedRateLimiter nodeB = new StoreBackedRateLimiter(shared, "login", 3, Duration.ofMinutes(1), () -> 0);
+
+        assertTrue(nodeA.tryAcquire("1.1.1.1"));
+        assertTrue(nodeB.tryAcquire("1.1.1.1"));
+        assertTrue(nodeA.tryAcquire("1.1.1.1"));
+        assertFalse(nodeB.tryAcquire("1.1.1.1"));
+    }
+
+    @Test
+    void concurrentRequestsCannotAllPassOnTheSameCount() throws Exception {
+        InMemoryRateLimitStore shared = new InMemoryRateLimitStore();
+        StoreBackedRateLimiter limiter =
+                new StoreBackedRateLimiter(shared, "login", 10, Duration.ofMinutes(1), () -> 0);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                requests.add(pool.submit(() -> {
+                    start.await();
+                    if (limiter.tryAcquire("1.1.1.1")) {
+                        admitted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> request : requests) {
+                request.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(10, admitted.get());
+        assertEquals(10, shared.get("login:1.1.1.1", 0, MINUTE), "denied requests give their slot back");
+    }
+
+    @Test
+    void batchingSeesOtherNodesTrafficItNeverCounted() {
+        InMemoryRateLimitStore shared = new InMemoryRateLimitStore();
+        shared.addAndGet("login:1.1.1.1", 0, MINUTE, 3);
+        BatchingRateLimitStore node = new BatchingRateLimitStore(shared, Duration.ofHours(1));
+
+        // the previous window, and the current one before this node wrote to it
+        assertEquals(3, node.get("login:1.1.1.1", 0, MINUTE));
+        shared.addAndGet("login:1.1.1.1", 1, MINUTE, 2);
+        assertEquals(2, node.get("login:1.1.1.1", 1, MINUTE));
+
+        shared.addAndGet("login:1.1.1.1", 1, MINUTE, 4);
+        node.sync();
+        assertEquals(6, node.get("login:1.1.1.1", 1, MINUTE));
+        node.close();
+    }
+
+    @Test
+    void batchingNeverLosesCountsToAConcurrentSync() throws Exception {
+        InMemoryRateLimitStore shared = new InMemoryRateLimitStore();
+        BatchingRateLimitStore node = new BatchingRateLimitStore(shared, Duration.ofHours(1));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger running = new AtomicInteger(4);
+        try {
+            List<Future<?>> counting = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                counting.add(pool.submit(() -> {
+                    try {
+                        long last = 0;
+                        for (int i = 0; i < 20_000; i++) {
+                            long seen = node.addAndGet("k", 0, MINUTE, 1);
+                            // only this node counts, so the total can only go up
+                            assertTrue(seen > last, "count went back from " + last + " to " + seen);
+                            last = seen;
+                        }
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            while (running.get() > 0) {
+                node.sync();
+            }
+            for (Future<?> thread : counting) {
+                thread.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        node.sync();
+        assertEquals(80_000, shared.get("k", 0, MINUTE));
+        assertEquals(80_000, node.get("k", 0, MINUTE));
+        node.close();
+    }
+
+    @Test
+    void policiesWithDifferentPeriodsShareOneStore() {
+        // a single slot, so both policies' keys collide in the mapped file
+        try (MappedFileRateLimitStore mapped = new MappedFileRateLimitStore(tempDir.resolve("shared.shm"), 1)) {
+            for (RateLimitStore store : List.of(new InMemoryRateLimitStore(), mapped)) {
+                AtomicLong clock = new AtomicLong();
+                StoreBackedRateLimiter login =
+                        new StoreBackedRateLimiter(store, "login", 10, Duration.ofMinutes(1), clock::get);
+                StoreBackedRateLimiter register =
+                        new StoreBackedRateLimiter(store, "register", 5, Duration.ofMinutes(10), clock::get);
+
+                for (int i = 0; i < 5; i++) {
+                    assertTrue(register.tryAcquire("1.1.1.1"));
+                }
+                // login windows roll over many times within the first register window
+                for (int minute = 1; minute < 10; minute++) {
+                    clock.set(minute * MINUTE);
+                    login.tryAcquire("1.1.1.1");
+                    assertFalse(register.tryAcquire("1.1.1.1"),
+                            store.getClass().getSimpleName() + ", minute " + minute);
+                }
+            }
+        }
+    }
+
+    @Test
+    void clusterPoliciesNeedUniqueNames() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getCluster().setStore(RateLimitProperties.StoreType.IN_MEMORY);
+        RateLimitProperties.Policy unnamed = new RateLimitProperties.Policy();
+        unnamed.setPatterns(List.of("/login"));
+        properties.setPolicies(List.of(unnamed));
+
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicies.from(properties));
+
+        unnamed.setName("default");
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPolicies.from(properties));
+
+        unnamed.setName("login");
+        RateLimitPolicies.from(properties).close();
+    }
+}
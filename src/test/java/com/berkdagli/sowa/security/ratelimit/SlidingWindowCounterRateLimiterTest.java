@@ -0,0 +1,62 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private SlidingWindowCounterRateLimiter limiter(long limit) {
+        return new SlidingWindowCounterRateLimiter(limit, Duration.ofMinutes(1), Duration.ofMinutes(1), 10,
+                Duration.ZERO, now::get);
+    }
+
+    @Test
+    void previousWindowIsWeightedByOverlap() {
+        SlidingWindowCounterRateLimiter limiter = limiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("1.1.1.1"));
+        }
+        assertFalse(limiter.tryAcquire("1.1.1.1"));
+
+        // halfway into the next window half of the previous count still applies
+        now.set(Duration.ofSeconds(90).toMillis());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("1.1.1.1"));
+        }
+        assertFalse(limiter.tryAcquire("1.1.1.1"));
+    }
+
+    @Test
+    void noBurstRightAfterWindowBoundary() {
+        SlidingWindowCounterRateLimiter limiter = limiter(10);
+        now.set(Duration.ofSeconds(59).toMillis());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("1.1.1.1"));
+        }
+
+        // 59/60 of the previous window still overlaps, leaving room for a single request
+        now.set(Duration.ofSeconds(61).toMillis());
+        assertTrue(limiter.tryAcquire("1.1.1.1"));
+        assertFalse(limiter.tryAcquire("1.1.1.1"));
+    }
+
+    @Test
+    void evictsCountersOlderThanTwoWindows() {
+        SlidingWindowCounterRateLimiter limiter = limiter(10);
+        limiter.tryAcquire("1.1.1.1");
+
+        now.set(Duration.ofSeconds(119).toMillis());
+        limiter.evictIdle();
+        assertEquals(1, limiter.size());
+
+        now.set(Duration.ofSeconds(120).toMillis());
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+    }
+}
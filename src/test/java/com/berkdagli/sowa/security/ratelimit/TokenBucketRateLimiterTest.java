@@ -0,0 +1,61 @@
+package com.berkdagli.sowa.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private TokenBucketRateLimiter limiter(long capacity, int maxBuckets) {
+        return new TokenBucketRateLimiter(capacity, Duration.ofMinutes(1), Duration.ofMinutes(5), maxBuckets,
+                Duration.ZERO, now::get);
+    }
+
+    @Test
+    void refillsProportionallyWithoutLosingPartialTokens() {
+        TokenBucketRateLimiter limiter = limiter(60, 10);
+        for (int i = 0; i < 60; i++) {
+            assertTrue(limiter.tryAcquire("1.1.1.1"));
+        }
+        assertFalse(limiter.tryAcquire("1.1.1.1"));
+
+        // 1.5 seconds is one token at 60/min; the remaining half second must carry over
+        now.addAndGet(1500);
+        assertTrue(limiter.tryAcquire("1.1.1.1"));
+        assertFalse(limiter.tryAcquire("1.1.1.1"));
+
+        now.addAndGet(500);
+        assertTrue(limiter.tryAcquire("1.1.1.1"));
+    }
+
+    @Test
+    void evictsOnlyIdleBuckets() {
+        TokenBucketRateLimiter limiter = limiter(10, 10);
+        limiter.tryAcquire("idle");
+        now.addAndGet(Duration.ofMinutes(4).toMillis());
+        limiter.tryAcquire("active");
+
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void clientsBeyondCapShareOverflowBucket() {
+        TokenBucketRateLimiter limiter = limiter(2, 1);
+        assertTrue(limiter.tryAcquire("tracked"));
+
+        assertTrue(limiter.tryAcquire("scan-1"));
+        assertTrue(limiter.tryAcquire("scan-2"));
+        assertFalse(limiter.tryAcquire("scan-3"));
+
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.tryAcquire("tracked"));
+    }
+}
@@ -1,21 +1,35 @@
 package com.berkdagli.sowa.service;
 
+import com.berkdagli.sowa.dto.AdminNoteRow;
+import com.berkdagli.sowa.dto.NoteExportRow;
 import com.berkdagli.sowa.dto.NoteDto;
+import com.berkdagli.sowa.dto.NotePage;
+import com.berkdagli.sowa.dto.NoteSearchHit;
+import com.berkdagli.sowa.dto.NoteSearchPage;
+import com.berkdagli.sowa.dto.NoteSummary;
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.model.Note;
 import com.berkdagli.sowa.model.User;
 import com.berkdagli.sowa.repository.NoteRepository;
 import com.berkdagli.sowa.repository.UserRepository;
+import com.berkdagli.sowa.security.event.SecurityEventPublisher;
+import com.berkdagli.sowa.security.event.SecurityEventType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +44,12 @@ public class NoteServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private SecurityEventPublisher securityEvents;
+
+    @Mock
+    private NoteWriteBatcher writes;
+
     @InjectMocks
     private NoteService noteService;
 
@@ -42,31 +62,74 @@ public class NoteServiceTest {
         testUser.setId(1L);
         testNote = new Note("Title", "Content", testUser);
         testNote.setId(10L);
+        // Writes run straight through, as with batching disabled
+        lenient().when(writes.execute(any())).thenAnswer(i -> i.<Supplier<?>>getArgument(0).get());
     }
 
     @Test
-    void findAllByUserEmail_Success() {
+    void findPageByUserEmail_FirstPage() {
         // Arrange
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(noteRepository.findByUserIdNative(1L)).thenReturn(Collections.singletonList(testNote));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.findSummariesBefore(1L, Long.MAX_VALUE, Limit.of(NoteService.PAGE_SIZE + 1)))
+                .thenReturn(summaries(100, NoteService.PAGE_SIZE + 1, -1));
 
         // Act
-        List<Note> notes = noteService.findAllByUserEmail("test@example.com");
+        NotePage page = noteService.findPageByUserEmail("test@example.com", null, null);
 
         // Assert
-        assertNotNull(notes);
-        assertFalse(notes.isEmpty());
-        assertEquals(1, notes.size());
-        assertEquals(testNote, notes.get(0));
+        assertEquals(NoteService.PAGE_SIZE, page.getNotes().size());
+        assertEquals(100L, page.getNotes().get(0).getId());
+        assertNull(page.getNewerCursor());
+        assertEquals(81L, page.getOlderCursor());
+    }
 
-        verify(userRepository).findByEmail("test@example.com");
-        verify(noteRepository).findByUserIdNative(1L);
+    @Test
+    void findPageByUserEmail_LastPageBefore() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.findSummariesBefore(1L, 81L, Limit.of(NoteService.PAGE_SIZE + 1)))
+                .thenReturn(summaries(80, 5, -1));
+
+        // Act
+        NotePage page = noteService.findPageByUserEmail("test@example.com", 81L, null);
+
+        // Assert
+        assertEquals(5, page.getNotes().size());
+        assertEquals(80L, page.getNewerCursor());
+        assertNull(page.getOlderCursor());
+    }
+
+    @Test
+    void findPageByUserEmail_After_ReturnsNewestFirst() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.findSummariesAfter(1L, 80L, Limit.of(NoteService.PAGE_SIZE + 1)))
+                .thenReturn(summaries(81, NoteService.PAGE_SIZE + 1, 1));
+
+        // Act
+        NotePage page = noteService.findPageByUserEmail("test@example.com", null, 80L);
+
+        // Assert
+        assertEquals(NoteService.PAGE_SIZE, page.getNotes().size());
+        assertEquals(100L, page.getNotes().get(0).getId());
+        assertEquals(81L, page.getNotes().get(NoteService.PAGE_SIZE - 1).getId());
+        assertEquals(100L, page.getNewerCursor());
+        assertEquals(81L, page.getOlderCursor());
+    }
+
+    private static List<NoteSummary> summaries(long firstId, int count, int step) {
+        List<NoteSummary> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long id = firstId + (long) i * step;
+            rows.add(new NoteSummary(id, "Title " + id, "Snippet"));
+        }
+        return rows;
     }
 
     @Test
     void findByIdAndUserEmail_Success() {
         // Arrange
-        when(noteRepository.findById(10L)).thenReturn(Optional.of(testNote));
+        when(noteRepository.findByIdAndUserEmail(10L, "test@example.com")).thenReturn(Optional.of(testNote));
 
         // Act
         Note note = noteService.findByIdAndUserEmail(10L, "test@example.com");
@@ -76,17 +139,15 @@ public class NoteServiceTest {
         assertEquals(10L, note.getId());
         assertEquals("Title", note.getTitle());
 
-        verify(noteRepository).findById(10L);
+        verify(noteRepository).findByIdAndUserEmail(10L, "test@example.com");
+        verify(noteRepository, never()).findOwnerEmailById(any());
     }
 
     @Test
     void findByIdAndUserEmail_AccessDenied() {
         // Arrange
-        User otherUser = new User("other", "other@example.com", "password", "USER");
-        Note otherNote = new Note("Other Title", "Content", otherUser);
-        otherNote.setId(20L);
-
-        when(noteRepository.findById(20L)).thenReturn(Optional.of(otherNote));
+        when(noteRepository.findByIdAndUserEmail(20L, "test@example.com")).thenReturn(Optional.empty());
+        when(noteRepository.findOwnerEmailById(20L)).thenReturn(Optional.of("other@example.com"));
 
         // Act & Assert
         Exception exception = assertThrows(AccessDeniedException.class, () -> {
@@ -94,13 +155,16 @@ public class NoteServiceTest {
         });
 
         assertEquals("You do not have permission to access this note", exception.getMessage());
-        verify(noteRepository).findById(20L);
+        verify(securityEvents).publish(SecurityEventType.NOTE_ACCESS_DENIED, "test@example.com", "note:20",
+                "test@example.com", 20L, "other@example.com");
+        verify(userRepository, never()).incrementNotesVersion(any(), anyLong());
     }
 
     @Test
     void findByIdAndUserEmail_NotFound() {
         // Arrange
-        when(noteRepository.findById(99L)).thenReturn(Optional.empty());
+        when(noteRepository.findByIdAndUserEmail(99L, "test@example.com")).thenReturn(Optional.empty());
+        when(noteRepository.findOwnerEmailById(99L)).thenReturn(Optional.empty());
 
         // Act & Assert
         Exception exception = assertThrows(RuntimeException.class, () -> {
@@ -108,7 +172,7 @@ public class NoteServiceTest {
         });
 
         assertEquals("Note not found", exception.getMessage());
-        verify(noteRepository).findById(99L);
+        verifyNoInteractions(securityEvents);
     }
 
     @Test
@@ -118,7 +182,7 @@ public class NoteServiceTest {
         noteDto.setTitle("New Title");
         noteDto.setContent("New Content");
 
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
         when(noteRepository.save(any(Note.class))).thenAnswer(i -> i.getArgument(0));
 
         // Act
@@ -127,6 +191,7 @@ public class NoteServiceTest {
         // Assert
         verify(userRepository).findByEmail("test@example.com");
         verify(noteRepository).save(any(Note.class));
+        verify(userRepository).incrementNotesVersion(eq(1L), anyLong());
     }
 
     @Test
@@ -136,44 +201,154 @@ public class NoteServiceTest {
         noteDto.setTitle("Updated Title");
         noteDto.setContent("Updated Content");
 
-        when(noteRepository.findById(10L)).thenReturn(Optional.of(testNote));
-        when(noteRepository.save(any(Note.class))).thenAnswer(i -> i.getArgument(0));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.updateByIdAndUserId(eq(10L), eq(1L), eq("Updated Title"), eq("Updated Content"),
+                anyLong())).thenReturn(1);
 
         // Act
         noteService.updateNote(10L, noteDto, "test@example.com");
 
         // Assert
-        assertEquals("Updated Title", testNote.getTitle());
-        assertEquals("Updated Content", testNote.getContent());
-        verify(noteRepository).findById(10L);
-        verify(noteRepository).save(testNote);
+        verify(noteRepository).updateByIdAndUserId(eq(10L), eq(1L), eq("Updated Title"), eq("Updated Content"),
+                anyLong());
+        verify(userRepository).incrementNotesVersion(eq(1L), anyLong());
+        verify(noteRepository, never()).findById(any());
+        verify(noteRepository, never()).findOwnerEmailById(any());
+    }
+
+    @Test
+    void updateNote_AccessDenied() {
+        // Arrange
+        NoteDto noteDto = new NoteDto();
+        noteDto.setTitle("Updated Title");
+        noteDto.setContent("Updated Content");
+
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.updateByIdAndUserId(eq(20L), eq(1L), eq("Updated Title"), eq("Updated Content"),
+                anyLong())).thenReturn(0);
+        when(noteRepository.findOwnerEmailById(20L)).thenReturn(Optional.of("other@example.com"));
+
+        // Act & Assert
+        assertThrows(AccessDeniedException.class, () -> noteService.updateNote(20L, noteDto, "test@example.com"));
+        verify(securityEvents).publish(SecurityEventType.NOTE_ACCESS_DENIED, "test@example.com", "note:20",
+                "test@example.com", 20L, "other@example.com");
     }
 
     @Test
     void deleteNote_Success() {
         // Arrange
-        when(noteRepository.findById(10L)).thenReturn(Optional.of(testNote));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.deleteByIdAndUserId(10L, 1L)).thenReturn(1);
 
         // Act
         noteService.deleteNote(10L, "test@example.com");
 
         // Assert
-        verify(noteRepository).findById(10L);
-        verify(noteRepository).delete(testNote);
+        verify(noteRepository).deleteByIdAndUserId(10L, 1L);
+        verify(userRepository).incrementNotesVersion(eq(1L), anyLong());
+        verify(noteRepository, never()).delete(any(Note.class));
+    }
+
+    @Test
+    void deleteNote_NotFound() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.deleteByIdAndUserId(99L, 1L)).thenReturn(0);
+        when(noteRepository.findOwnerEmailById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        Exception exception = assertThrows(RuntimeException.class, () -> noteService.deleteNote(99L, "test@example.com"));
+        assertEquals("Note not found", exception.getMessage());
+    }
+
+    @Test
+    void search_QuotesTermsAndPaginates() {
+        // Arrange
+        NoteSearchHit hit = mock(NoteSearchHit.class);
+        when(hit.getId()).thenReturn(10L);
+        when(hit.getTitle()).thenReturn("Title");
+        when(hit.getSnippet()).thenReturn("Content");
+        List<NoteSearchHit> hits = Collections.nCopies(NoteService.PAGE_SIZE + 1, hit);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(noteRepository.search(1L, "\"title\" \"OR\"", NoteService.PAGE_SIZE + 1, NoteService.PAGE_SIZE))
+                .thenReturn(hits);
+
+        // Act
+        NoteSearchPage page = noteService.search("test@example.com", " title  OR ", 1);
+
+        // Assert
+        assertEquals(NoteService.PAGE_SIZE, page.getNotes().size());
+        assertEquals(1, page.getPage());
+        assertTrue(page.isHasNext());
+    }
+
+    @Test
+    void search_BlankQuerySkipsDatabase() {
+        // Act
+        NoteSearchPage page = noteService.search("test@example.com", " \"\" ", 0);
+
+        // Assert
+        assertTrue(page.getNotes().isEmpty());
+        assertFalse(page.isHasNext());
+        verifyNoInteractions(noteRepository, userRepository);
+    }
+
+    @Test
+    void toMatchExpression_NeutralisesFtsSyntax() {
+        assertEquals("\"a\" \"NEAR(b\" \"c*\" \"title:d\"", NoteService.toMatchExpression("a NEAR(b \"c*\" title:d"));
+        assertEquals(NoteService.SEARCH_MAX_TERMS,
+                NoteService.toMatchExpression("w ".repeat(50)).split(" ").length);
+        assertNull(NoteService.toMatchExpression("   "));
+        assertNull(NoteService.toMatchExpression(null));
+    }
+
+    @Test
+    void findAdminPage_StartsFromFirstIdWithoutCursor() {
+        // Arrange
+        AdminNoteRow row = new AdminNoteRow(10L, "test@example.com", "Title", "Content");
+        when(noteRepository.findAdminRowsAfter(0L, Limit.of(NoteService.ADMIN_PAGE_SIZE + 1)))
+                .thenReturn(List.of(row));
+
+        // Act
+        List<AdminNoteRow> rows = noteService.findAdminPage(null);
+
+        // Assert
+        assertEquals(List.of(row), rows);
+        verify(noteRepository, never()).findAll();
+    }
+
+    @Test
+    void withAdminRows_ConsumesAndClosesStream() {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<AdminNoteRow> stream = Stream.of(
+                new AdminNoteRow(1L, "a@example.com", "A", "a"),
+                new AdminNoteRow(2L, null, "B", "b")).onClose(() -> closed.set(true));
+        when(noteRepository.streamAdminRows()).thenReturn(stream);
+
+        // Act
+        List<Long> ids = new ArrayList<>();
+        noteService.withAdminRows(rows -> rows.forEachRemaining(row -> ids.add(row.getId())));
+
+        // Assert
+        assertEquals(List.of(1L, 2L), ids);
+        assertTrue(closed.get());
     }
 
     @Test
-    void getAllNotes_Success() {
+    void forEachExportRow_ConsumesAndClosesStream() {
         // Arrange
-        when(noteRepository.findAll()).thenReturn(java.util.Collections.singletonList(testNote));
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<NoteExportRow> stream = Stream.of(new NoteExportRow(1L, "a@example.com", "A", "a".repeat(500)))
+                .onClose(() -> closed.set(true));
+        when(noteRepository.streamExportRows()).thenReturn(stream);
 
         // Act
-        List<Note> notes = noteService.getAllNotes();
+        List<String> contents = new ArrayList<>();
+        noteService.forEachExportRow(row -> contents.add(row.getContent()));
 
         // Assert
-        assertNotNull(notes);
-        assertEquals(1, notes.size());
-        assertEquals(testNote, notes.get(0));
-        verify(noteRepository).findAll();
+        assertEquals(List.of("a".repeat(500)), contents);
+        assertTrue(closed.get());
     }
 }
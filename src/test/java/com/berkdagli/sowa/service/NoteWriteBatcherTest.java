@@ -0,0 +1,188 @@
+package com.berkdagli.sowa.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NoteWriteBatcherTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private NoteWriteBatcher batcher;
+    private ExecutorService callers;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+        batcher.destroy();
+    }
+
+    private NoteWriteBatcher batcher(boolean enabled, Duration maxDelay) {
+        NoteWriteProperties properties = new NoteWriteProperties();
+        properties.setEnabled(enabled);
+        properties.setMaxDelay(maxDelay);
+        return batcher(properties);
+    }
+
+    private NoteWriteBatcher batcher(NoteWriteProperties properties) {
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        batcher = new NoteWriteBatcher(properties, transactionManager);
+        return batcher;
+    }
+
+    private List<Future<Integer>> submitConcurrently(int writes, java.util.function.IntFunction<Integer> work) {
+        callers = Executors.newFixedThreadPool(writes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < writes; i++) {
+            int n = i;
+            futures.add(callers.submit(() -> {
+                start.await();
+                return batcher.execute(() -> work.apply(n));
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    @Test
+    void disabledRunsEachWriteInItsOwnTransactionOnTheCaller() {
+        batcher(false, Duration.ofMillis(5));
+        Thread caller = Thread.currentThread();
+
+        assertEquals("done", batcher.execute(() -> {
+            assertSame(caller, Thread.currentThread());
+            return "done";
+        }));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void concurrentWritesShareACommit() throws Exception {
+        batcher(true, Duration.ofMillis(200));
+
+        List<Future<Integer>> futures = submitConcurrently(10, n -> n * 2);
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i * 2, futures.get(i).get());
+        }
+        verify(transactionManager, atMost(9)).commit(any());
+    }
+
+    @Test
+    void failingWriteOnlyFailsItsCaller() throws Exception {
+        batcher(true, Duration.ofMillis(200));
+
+        List<Future<Integer>> futures = submitConcurrently(4, n -> {
+            if (n == 2) {
+                throw new IllegalStateException("write " + n);
+            }
+            return n;
+        });
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (i == 2) {
+                Exception e = assertThrows(Exception.class, futures.get(i)::get);
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            } else {
+                assertEquals(i, futures.get(i).get());
+            }
+        }
+    }
+
+    @Test
+    void rolledBackBatchIsRecommittedWriteByWrite() throws Exception {
+        batcher(true, Duration.ofMillis(200));
+        AtomicInteger commits = new AtomicInteger();
+        doAnswer(i -> {
+            if (commits.getAndIncrement() == 0) {
+                throw new TransactionSystemException("disk full");
+            }
+            return null;
+        }).when(transactionManager).commit(any());
+        AtomicInteger runs = new AtomicInteger();
+
+        List<Future<Integer>> futures = submitConcurrently(3, n -> {
+            runs.incrementAndGet();
+            return n;
+        });
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get());
+        }
+        assertTrue(runs.get() > 3, "writes of the rolled back batch must run again");
+    }
+
+    @Test
+    void writeThatThrewIsNotRunAgainWhenItsBatchRollsBack() throws Exception {
+        batcher(true, Duration.ofMillis(200));
+        AtomicInteger commits = new AtomicInteger();
+        doAnswer(i -> {
+            if (commits.getAndIncrement() == 0) {
+                throw new TransactionSystemException("disk full");
+            }
+            return null;
+        }).when(transactionManager).commit(any());
+        AtomicInteger failingRuns = new AtomicInteger();
+
+        List<Future<Integer>> futures = submitConcurrently(3, n -> {
+            if (n == 1) {
+                failingRuns.incrementAndGet();
+                throw new IllegalStateException("write " + n);
+            }
+            return n;
+        });
+
+        Exception e = assertThrows(Exception.class, futures.get(1)::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(0, futures.get(0).get());
+        assertEquals(2, futures.get(2).get());
+        assertEquals(1, failingRuns.get(), "a write that threw must not repeat its side effects");
+    }
+
+    @Test
+    void writeNotPickedUpInTimeIsCommittedByItsCaller() throws Exception {
+        NoteWriteProperties properties = new NoteWriteProperties();
+        properties.setEnabled(true);
+        properties.setMaxBatchSize(1);
+        properties.setMaxQueueWait(Duration.ofMillis(50));
+        batcher(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        callers = Executors.newSingleThreadExecutor();
+        // occupies the committer so the next write stays queued
+        Future<Integer> stalled = callers.submit(() -> batcher.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        }));
+        verify(transactionManager, timeout(5000)).getTransaction(any());
+
+        Thread caller = Thread.currentThread();
+        assertEquals(2, batcher.execute(() -> {
+            assertSame(caller, Thread.currentThread());
+            return 2;
+        }));
+
+        release.countDown();
+        assertEquals(1, stalled.get());
+    }
+}
@@ -0,0 +1,85 @@
+package com.berkdagli.sowa.service;
+
+import com.berkdagli.sowa.dto.UserAccount;
+import com.berkdagli.sowa.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserCacheIntegrationTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("cache-test.db"));
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void lookupsAreCachedAndEvictedOnWrite() {
+        userService.createUser("cached", "cached@example.com", "Password1!");
+        Cache cache = cacheManager.getCache(UserRepository.USERS_BY_EMAIL);
+        assertNull(cache.get("cached@example.com"), "a negative lookup must not be cached");
+
+        UserAccount first = userRepository.findByEmail("cached@example.com").orElseThrow();
+        UserAccount second = userRepository.findByEmail("cached@example.com").orElseThrow();
+        assertSame(first, second);
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", UserRepository.USERS_BY_EMAIL)
+                .tag("result", "hit").functionCounter().count() >= 1);
+
+        userService.changeRole("cached@example.com", "ADMIN");
+        assertNull(cache.get("cached@example.com"));
+        assertEquals("ADMIN", userRepository.findByEmail("cached@example.com").orElseThrow().role());
+    }
+
+    @Test
+    void evictionWaitsForTheCommit() {
+        userService.createUser("committed", "committed@example.com", "Password1!");
+        Cache cache = cacheManager.getCache(UserRepository.USERS_BY_EMAIL);
+        userRepository.findByEmail("committed@example.com");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.updateRoleByEmail("committed@example.com", "ADMIN");
+            assertNotNull(cache.get("committed@example.com"), "evicted before the new role was committed");
+        });
+        assertNull(cache.get("committed@example.com"));
+        assertEquals("ADMIN", userRepository.findByEmail("committed@example.com").orElseThrow().role());
+
+        TransactionTemplate rolledBack = new TransactionTemplate(transactionManager);
+        rolledBack.executeWithoutResult(status -> {
+            userRepository.updateRoleByEmail("committed@example.com", "USER");
+            status.setRollbackOnly();
+        });
+        assertEquals("ADMIN", ((UserAccount) cache.get("committed@example.com").get()).role(),
+                "a rolled back write leaves the cached row alone");
+    }
+}
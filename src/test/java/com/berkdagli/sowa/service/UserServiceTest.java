@@ -1,5 +1,6 @@
 package com.berkdagli.sowa.service;
 
+import com.berkdagli.sowa.dto.UserAccount;
 import com.berkdagli.sowa.model.User;
 import com.berkdagli.sowa.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +9,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import com.berkdagli.sowa.security.password.PasswordHashingRejectedException;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
@@ -64,7 +67,7 @@ public class UserServiceTest {
     @Test
     void createUser_EmailTaken() {
         // Arrange
-        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(UserAccount.of(testUser)));
 
         // Act & Assert
         Exception exception = assertThrows(RuntimeException.class, () -> {
@@ -82,25 +85,73 @@ public class UserServiceTest {
     void authenticate_Success() {
         // Arrange
         testUser.setPassword("encodedPassword"); // set encoded password on user found in DB
-        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(UserAccount.of(testUser)));
         when(passwordEncoder.matches("rawPassword", "encodedPassword")).thenReturn(true);
 
         // Act
-        User authenticatedUser = userService.authenticate("test@example.com", "rawPassword");
+        UserAccount authenticatedUser = userService.authenticate("test@example.com", "rawPassword");
 
         // Assert
         assertNotNull(authenticatedUser);
-        assertEquals("testuser", authenticatedUser.getUsername());
+        assertEquals("testuser", authenticatedUser.username());
 
         verify(userRepository).findByEmail("test@example.com");
         verify(passwordEncoder).matches("rawPassword", "encodedPassword");
     }
 
+    @Test
+    void authenticate_UpgradesOutdatedHash() {
+        // Arrange
+        testUser.setPassword("$2a$10$legacy");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(passwordEncoder.matches("rawPassword", "$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.encode("rawPassword")).thenReturn("{argon2}current");
+
+        // Act
+        userService.authenticate("test@example.com", "rawPassword");
+
+        // Assert
+        verify(userRepository).updatePasswordByEmail("test@example.com", "{argon2}current");
+    }
+
+    @Test
+    void authenticate_SucceedsWhenUpgradeIsRejected() {
+        // Arrange
+        testUser.setPassword("$2a$10$legacy");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
+        when(passwordEncoder.matches("rawPassword", "$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        when(passwordEncoder.encode("rawPassword"))
+                .thenThrow(new PasswordHashingRejectedException("busy"));
+
+        // Act
+        UserAccount authenticatedUser = userService.authenticate("test@example.com", "rawPassword");
+
+        // Assert
+        assertEquals("testuser", authenticatedUser.username());
+        verify(userRepository, never()).updatePasswordByEmail(any(), any());
+    }
+
+    @Test
+    void updatePassword_StoresNewHash() {
+        // Arrange
+        UserDetails details = org.springframework.security.core.userdetails.User
+                .withUsername("test@example.com").password("$2a$10$legacy").roles("USER").build();
+
+        // Act
+        UserDetails updated = userService.updatePassword(details, "{bcrypt}new");
+
+        // Assert
+        assertEquals("{bcrypt}new", updated.getPassword());
+        verify(userRepository).updatePasswordByEmail("test@example.com", "{bcrypt}new");
+    }
+
     @Test
     void authenticate_InvalidCredentials() {
         // Arrange
         testUser.setPassword("encodedPassword");
-        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.of(UserAccount.of(testUser)));
         when(passwordEncoder.matches("wrongPassword", "encodedPassword")).thenReturn(false);
 
         // Act & Assert
@@ -134,7 +185,7 @@ public class UserServiceTest {
     void loadUserByUsername_Success() {
         // Arrange
         testUser.setPassword("encodedPassword"); // matches UserDetails expect
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(UserAccount.of(testUser)));
 
         // Act
         org.springframework.security.core.userdetails.UserDetails userDetails = userService
@@ -0,0 +1,82 @@
+package com.berkdagli.sowa.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.FactorGrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactSessionSerializerTest {
+
+    private final CompactSessionSerializer serializer =
+            new CompactSessionSerializer(CompactSessionSerializerTest.class.getClassLoader());
+
+    @Test
+    void formLoginSecurityContextRoundTripsCompactly() {
+        SecurityContext context = new SecurityContextImpl(formLogin());
+
+        byte[] compact = serializer.serialize(context);
+        SecurityContext restored = (SecurityContext) serializer.deserialize(compact);
+
+        assertTrue(compact.length < 128, "compact form is " + compact.length + " bytes");
+        assertTrue(compact.length * 5 < new org.springframework.core.serializer.support.SerializingConverter()
+                .convert(context).length);
+        Authentication authentication = restored.getAuthentication();
+        assertEquals(context.getAuthentication(), authentication);
+        assertEquals(context.getAuthentication().getAuthorities(), authentication.getAuthorities());
+        assertEquals(context.getAuthentication().getDetails(), authentication.getDetails());
+        assertNull(((User) authentication.getPrincipal()).getPassword());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    void csrfTokenRoundTrips() {
+        CsrfToken token = new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "abc123");
+
+        CsrfToken restored = (CsrfToken) serializer.deserialize(serializer.serialize(token));
+
+        assertEquals("X-CSRF-TOKEN", restored.getHeaderName());
+        assertEquals("_csrf", restored.getParameterName());
+        assertEquals("abc123", restored.getToken());
+    }
+
+    @Test
+    void otherValuesFallBackToJavaSerialization() {
+        ArrayList<String> value = new ArrayList<>(List.of("flash", "attributes"));
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals((byte) 0xAC, bytes[0]);
+        assertEquals(value, serializer.deserialize(bytes));
+
+        // credentials still present: not the shape the compact format describes, so nothing may be dropped
+        UsernamePasswordAuthenticationToken withCredentials = UsernamePasswordAuthenticationToken.authenticated(
+                "alice@example.com", "secret", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        SecurityContext restored = (SecurityContext) serializer.deserialize(
+                serializer.serialize(new SecurityContextImpl(withCredentials)));
+        assertEquals("secret", restored.getAuthentication().getCredentials());
+    }
+
+    private static UsernamePasswordAuthenticationToken formLogin() {
+        List<SimpleGrantedAuthority> roles = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        User principal = new User("alice@example.com", "hash", roles);
+        principal.eraseCredentials();
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                principal, null, List.of(roles.get(0), FactorGrantedAuthority.withAuthority(
+                        FactorGrantedAuthority.PASSWORD_AUTHORITY).issuedAt(Instant.parse("2025-01-01T10:00:00Z"))
+                        .build()));
+        authentication.setDetails(new WebAuthenticationDetails("10.0.0.1", "session-id"));
+        return authentication;
+    }
+}
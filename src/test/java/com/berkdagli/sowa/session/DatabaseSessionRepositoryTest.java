@@ -0,0 +1,146 @@
+package com.berkdagli.sowa.session;
+
+import com.berkdagli.sowa.service.UserService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"sowa.session.store=DATABASE", "sowa.sqlite.writer-acquire-timeout=2s"})
+@AutoConfigureMockMvc
+class DatabaseSessionRepositoryTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + tempDir.resolve("session-test.db"));
+    }
+
+    @Autowired
+    private DatabaseSessionRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void attributesSurviveAReloadAndOnlyChangesAreWritten() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        DatabaseSessionRepository.DatabaseSession session = repository.createSession();
+        session.setAttribute("a", "first");
+        session.setAttribute("b", "second");
+        repository.save(session);
+
+        DatabaseSessionRepository.DatabaseSession loaded = repository.findById(session.getId());
+        assertEquals("first", loaded.getAttribute("a"));
+        assertEquals(2, loaded.getAttributeNames().size());
+
+        // nothing changed and last access moved by less than the resolution: no write at all
+        jdbc.update("UPDATE http_session_attributes SET value = X'00' WHERE name = 'b'");
+        loaded.setLastAccessedTime(loaded.getLastAccessedTime().plusSeconds(1));
+        repository.save(loaded);
+        loaded.setAttribute("a", "changed");
+        loaded.removeAttribute("missing");
+        repository.save(loaded);
+
+        assertArrayEquals(new byte[] { 0 }, jdbc.queryForObject(
+                "SELECT value FROM http_session_attributes WHERE name = 'b'", byte[].class));
+        assertEquals("changed", repository.findById(session.getId()).getAttribute("a"));
+
+        loaded.removeAttribute("a");
+        repository.save(loaded);
+        assertEquals(1, repository.findById(session.getId()).getAttributeNames().size());
+    }
+
+    @Test
+    void changedSessionIdReplacesTheOldOne() {
+        DatabaseSessionRepository.DatabaseSession session = repository.createSession();
+        session.setAttribute("a", "value");
+        repository.save(session);
+        String oldId = session.getId();
+
+        DatabaseSessionRepository.DatabaseSession loaded = repository.findById(oldId);
+        String newId = loaded.changeSessionId();
+        repository.save(loaded);
+
+        assertNull(repository.findById(oldId));
+        assertEquals("value", repository.findById(newId).getAttribute("a"));
+    }
+
+    @Test
+    void expiredSessionsAreDeletedLazily() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        DatabaseSessionRepository.DatabaseSession session = repository.createSession();
+        session.setMaxInactiveInterval(Duration.ofMinutes(1));
+        session.setLastAccessedTime(Instant.now().minus(Duration.ofMinutes(2)));
+        session.setAttribute("a", "value");
+        repository.save(session);
+
+        DatabaseSessionRepository.DatabaseSession abandoned = repository.createSession();
+        abandoned.setMaxInactiveInterval(Duration.ofMinutes(1));
+        abandoned.setLastAccessedTime(Instant.now().minus(Duration.ofMinutes(2)));
+        repository.save(abandoned);
+
+        assertNull(repository.findById(session.getId()));
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM http_session_attributes "
+                + "WHERE session_primary_id NOT IN (SELECT primary_id FROM http_sessions)",
+                Integer.class));
+        assertEquals(1, repository.deleteExpired());
+    }
+
+    @Test
+    void formLoginIsKeptInTheDatabase() throws Exception {
+        userService.createUser("session", "session@example.com", "Password1!");
+
+        Cookie cookie = mockMvc.perform(post("/login").with(csrf())
+                .param("email", "session@example.com").param("password", "Password1!"))
+                .andExpect(status().is3xxRedirection())
+                .andReturn().getResponse().getCookie("SESSION");
+        assertNotNull(cookie);
+
+        String sessionId = new String(java.util.Base64.getDecoder().decode(cookie.getValue()));
+        assertNotNull(repository.findById(sessionId).getAttribute("SPRING_SECURITY_CONTEXT"));
+        mockMvc.perform(get("/hello").cookie(cookie)).andExpect(status().isOk());
+    }
+
+    @Test
+    void redirectAfterAWriteCanSaveTheSession() throws Exception {
+        userService.createUser("writer", "writer@example.com", "Password1!");
+        Cookie cookie = mockMvc.perform(post("/login").with(csrf())
+                .param("email", "writer@example.com").param("password", "Password1!"))
+                .andReturn().getResponse().getCookie("SESSION");
+
+        // The redirect commits the session while the request is still open: the note insert must not keep
+        // holding the single writer connection until the end of the request
+        mockMvc.perform(post("/notes").with(csrf()).cookie(cookie)
+                        .param("title", "Title").param("content", "Content"))
+                .andExpect(status().is3xxRedirection());
+        String sessionId = new String(java.util.Base64.getDecoder().decode(cookie.getValue()));
+        assertNotNull(repository.findById(sessionId).getAttribute(
+                "org.springframework.web.servlet.support.SessionFlashMapManager.FLASH_MAPS"));
+    }
+}
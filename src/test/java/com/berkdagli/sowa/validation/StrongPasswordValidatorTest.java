@@ -0,0 +1,104 @@
+package com.berkdagli.sowa.validation;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrongPasswordValidatorTest {
+
+    private static ValidatorFactory factory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        factory.close();
+    }
+
+    record Defaults(@StrongPassword String password) {
+    }
+
+    record Custom(@StrongPassword(minLength = 12, maxLength = 20, requireDigit = false, specialCharacters = "{}$",
+            checkDenylist = false) String password) {
+    }
+
+    @Test
+    void acceptsAPasswordWithEveryClass() {
+        assertEquals(Set.of(), messages(new Defaults("Kx7#vQ2mLp")));
+    }
+
+    @Test
+    void reportsEveryMissingClassAndShortLength() {
+        assertEquals(Set.of(
+                "Password must be at least 8 characters long",
+                "Password must contain at least one uppercase letter",
+                "Password must contain at least one digit",
+                "Password must contain at least one special character (@#$%^&+=!)"),
+                messages(new Defaults("abc")));
+        assertEquals(Set.of("Password must contain at least one lowercase letter"),
+                messages(new Defaults("KX7#VQ2MLP")));
+    }
+
+    @Test
+    void rejectsOverlongInputWithASingleViolation() {
+        String longInput = "a".repeat(100_000);
+
+        assertEquals(Set.of("Password must be at most 64 characters long"), messages(new Defaults(longInput)));
+    }
+
+    @Test
+    void rejectsDenylistedPasswordsCaseInsensitively() {
+        String breached = "Password is too common; it appears in lists of breached passwords";
+
+        assertEquals(Set.of(breached), messages(new Defaults("P@ssw0rd1")));
+        assertEquals(Set.of(breached), messages(new Defaults("pASSWORD1!")));
+    }
+
+    @Test
+    void honoursAnnotationAttributes() {
+        assertEquals(Set.of(), messages(new Custom("NoDigitsHere{ok}")));
+        assertEquals(Set.of(
+                "Password must be at least 12 characters long",
+                "Password must contain at least one special character ({}$)"),
+                messages(new Custom("Short1!a")));
+        assertEquals(Set.of("Password must be at most 20 characters long"),
+                messages(new Custom("NoDigitsHere{ok}-but-far-too-long")));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        List<String> members = java.util.stream.IntStream.range(0, 10_000).mapToObj(i -> "member-" + i).toList();
+        BloomFilter filter = BloomFilter.of(members, 0.01);
+
+        assertTrue(members.stream().allMatch(filter::mightContain));
+        assertTrue(filter.mightContain("MEMBER-42"));
+        long falsePositives = java.util.stream.IntStream.range(0, 10_000)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .filter(filter::mightContain)
+                .count();
+        assertTrue(falsePositives < 300, falsePositives + " false positives");
+        assertTrue(filter.sizeInBytes() < 16 * 1024);
+    }
+
+    private static Set<String> messages(Object bean) {
+        return validator.validate(bean).stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toSet());
+    }
+}